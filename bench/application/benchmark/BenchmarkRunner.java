@@ -0,0 +1,39 @@
+package application.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkRunner. Runs the benchmarks with the GC profiler attached and
+ * writes the results to bench_results.json as well as the console.
+ *
+ * Any JMH command line option can be passed, for example
+ * "-p parser=reader" to skip the Tika baseline or a benchmark name pattern to
+ * run only some of them.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class BenchmarkRunner {
+
+
+	public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+
+		Options options = new OptionsBuilder()
+				.parent(new CommandLineOptions(args))
+				.include(MetaDataParserBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.resultFormat(ResultFormatType.JSON)
+				.result("bench_results.json")
+				.build();
+
+		new Runner(options).run();
+	}
+
+}
@@ -0,0 +1,188 @@
+package application.benchmark;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+/**
+ * FixtureGenerator. Writes the MP3 files the benchmarks read. Every fixture is
+ * three minutes of silent MPEG-1 Layer III frames behind an ID3v2 tag, so the
+ * tag readers and Tika see the same structure as a real library file.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class FixtureGenerator {
+
+
+	/**
+	 * The fixtures that can be generated
+	 */
+	public enum Fixture {
+
+		/** ID3v2.3 tag, constant 128 kbps */
+		ID3V23_CBR,
+
+		/** ID3v2.4 tag, constant 128 kbps */
+		ID3V24_CBR,
+
+		/** ID3v2.4 tag, variable bitrate with a Xing header */
+		ID3V24_VBR,
+
+		/** ID3v2.3 tag with a 5 MB embedded picture, constant 128 kbps */
+		ID3V23_LARGE_ART
+	}
+
+	private static final int FRAMES = 6891;
+	private static final int LARGE_ART_SIZE = 5 * 1024 * 1024;
+
+	/*
+	 * MPEG-1 Layer III, 44.1 kHz, stereo frame headers by bitrate
+	 */
+	private static final int HEADER_64 = 0xFFFB5000;
+	private static final int HEADER_128 = 0xFFFB9000;
+	private static final int HEADER_192 = 0xFFFBB000;
+
+
+	/**
+	 * Writes a fixture into a directory.
+	 *
+	 * @param fixture The fixture to write
+	 * @param directory The directory to write it in
+	 * @return The fixture file
+	 * @throws IOException If the file could not be written
+	 */
+	public static File generate(Fixture fixture, File directory) throws IOException {
+
+		File file = new File(directory, fixture.name().toLowerCase() + ".mp3");
+		boolean v24 = fixture == Fixture.ID3V24_CBR || fixture == Fixture.ID3V24_VBR;
+
+		try (OutputStream out = new FileOutputStream(file)) {
+			out.write(tag(v24 ? 4 : 3, fixture == Fixture.ID3V23_LARGE_ART));
+
+			if (fixture == Fixture.ID3V24_VBR)
+				writeVbrFrames(out);
+			else
+				writeCbrFrames(out);
+		}
+		return file;
+	}
+
+
+	/*
+	 * Writes an ID3v2 tag with the usual text frames and, optionally, a large
+	 * picture
+	 */
+	private static byte[] tag(int version, boolean largeArt) throws IOException {
+
+		ByteArrayOutputStream frames = new ByteArrayOutputStream();
+		frame(frames, version, "TIT2", text("Benchmark Title"));
+		frame(frames, version, "TPE1", text("Benchmark Artist"));
+		frame(frames, version, "TALB", text("Benchmark Album"));
+		frame(frames, version, "TRCK", text("3/12"));
+
+		if (largeArt) {
+			byte[] picture = new byte[LARGE_ART_SIZE];
+			new Random(0).nextBytes(picture);
+
+			ByteArrayOutputStream apic = new ByteArrayOutputStream();
+			apic.write(0);
+			apic.write("image/jpeg".getBytes(StandardCharsets.ISO_8859_1));
+			apic.write(0);
+			apic.write(3);
+			apic.write(0);
+			apic.write(picture);
+			frame(frames, version, "APIC", apic.toByteArray());
+		}
+
+		// padding, as left by most tag editors
+		frames.write(new byte[1024]);
+
+		ByteArrayOutputStream tag = new ByteArrayOutputStream();
+		tag.write("ID3".getBytes(StandardCharsets.ISO_8859_1));
+		tag.write(version);
+		tag.write(0);
+		tag.write(0);
+		tag.write(syncsafe(frames.size()));
+		frames.writeTo(tag);
+		return tag.toByteArray();
+	}
+
+
+	private static void frame(ByteArrayOutputStream frames, int version, String id, byte[] data)
+			throws IOException {
+
+		frames.write(id.getBytes(StandardCharsets.ISO_8859_1));
+		frames.write(version == 4 ? syncsafe(data.length) : integer(data.length));
+		frames.write(0);
+		frames.write(0);
+		frames.write(data);
+	}
+
+
+	/*
+	 * A text frame body in ISO-8859-1
+	 */
+	private static byte[] text(String value) {
+
+		byte[] text = value.getBytes(StandardCharsets.ISO_8859_1);
+		byte[] data = new byte[text.length + 1];
+		System.arraycopy(text, 0, data, 1, text.length);
+		return data;
+	}
+
+
+	private static void writeCbrFrames(OutputStream out) throws IOException {
+
+		for (int i = 0; i < FRAMES; i++)
+			out.write(frameOf(HEADER_128));
+	}
+
+
+	/*
+	 * Writes frames of varying bitrate behind a first frame holding a Xing
+	 * header with the frame count
+	 */
+	private static void writeVbrFrames(OutputStream out) throws IOException {
+
+		byte[] first = frameOf(HEADER_128);
+		int xing = 4 + 32;
+		System.arraycopy("Xing".getBytes(StandardCharsets.ISO_8859_1), 0, first, xing, 4);
+		System.arraycopy(integer(1), 0, first, xing + 4, 4);
+		System.arraycopy(integer(FRAMES), 0, first, xing + 8, 4);
+		out.write(first);
+
+		int[] headers = { HEADER_64, HEADER_128, HEADER_192 };
+
+		for (int i = 1; i < FRAMES; i++)
+			out.write(frameOf(headers[i % headers.length]));
+	}
+
+
+	/*
+	 * A silent frame with the given header
+	 */
+	private static byte[] frameOf(int header) {
+
+		int bitrate = ((header >> 12) & 0xF) == 5 ? 64 : ((header >> 12) & 0xF) == 9 ? 128 : 192;
+		byte[] frame = new byte[144 * bitrate * 1000 / 44100];
+		System.arraycopy(integer(header), 0, frame, 0, 4);
+		return frame;
+	}
+
+
+	private static byte[] integer(int value) {
+		return new byte[] { (byte) (value >> 24), (byte) (value >> 16), (byte) (value >> 8), (byte) value };
+	}
+
+
+	private static byte[] syncsafe(int value) {
+		return new byte[] { (byte) ((value >> 21) & 0x7F), (byte) ((value >> 14) & 0x7F), (byte) ((value >> 7) & 0x7F),
+				(byte) (value & 0x7F) };
+	}
+
+}
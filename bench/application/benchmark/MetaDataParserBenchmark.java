@@ -0,0 +1,96 @@
+package application.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import application.benchmark.FixtureGenerator.Fixture;
+import application.utils.MetaDataParser;
+
+/**
+ * MetaDataParserBenchmark. Measures the single field getters of
+ * MetaDataParser on every fixture, once through the tag readers and once
+ * through the Tika baseline.
+ *
+ * Throughput is reported alongside sampled latency, whose percentiles give
+ * the p99. Run through {@link BenchmarkRunner} to add allocation per
+ * operation from the GC profiler.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetaDataParserBenchmark {
+
+
+	@Param({ "ID3V23_CBR", "ID3V24_CBR", "ID3V24_VBR", "ID3V23_LARGE_ART" })
+	public Fixture fixture;
+
+	/*
+	 * "reader" for MetaDataParser as shipped, "tika" for the Tika baseline
+	 */
+	@Param({ "reader", "tika" })
+	public String parser;
+
+	private File directory;
+	private File file;
+
+
+	@Setup(Level.Trial)
+	public void generateFixture() throws IOException {
+		directory = Files.createTempDirectory("metadata-benchmark").toFile();
+		file = FixtureGenerator.generate(fixture, directory);
+	}
+
+
+	@TearDown(Level.Trial)
+	public void deleteFixture() {
+		file.delete();
+		directory.delete();
+	}
+
+
+	@Benchmark
+	public String getTitle() {
+		return isTika() ? MetaDataParser.parseWithTika(file).getTitle() : MetaDataParser.getTitle(file);
+	}
+
+
+	@Benchmark
+	public String getArtist() {
+		return isTika() ? MetaDataParser.parseWithTika(file).getArtist() : MetaDataParser.getArtist(file);
+	}
+
+
+	@Benchmark
+	public String getDuration() {
+		return isTika() ? MetaDataParser.parseWithTika(file).getFormattedDuration()
+				: MetaDataParser.getDuration(file);
+	}
+
+
+	private boolean isTika() {
+		return parser.equals("tika");
+	}
+
+}
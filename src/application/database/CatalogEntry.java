@@ -0,0 +1,69 @@
+package application.database;
+
+import application.utils.TrackMetadata;
+
+/**
+ * CatalogEntry. A single track stored in the track catalog together with the
+ * file size and modification time its tags were read at.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class CatalogEntry {
+
+
+	private final String path;
+	private final long size;
+	private final long modified;
+	private final TrackMetadata metadata;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param path The file path of the track
+	 * @param size The size of the file in bytes
+	 * @param modified The last modified time of the file in milliseconds
+	 * @param metadata The tags and audio properties read from the file
+	 */
+	public CatalogEntry(String path, long size, long modified, TrackMetadata metadata) {
+		this.path = path;
+		this.size = size;
+		this.modified = modified;
+		this.metadata = metadata;
+	}
+
+
+	public String getPath() {
+		return path;
+	}
+
+
+	public long getSize() {
+		return size;
+	}
+
+
+	public long getModified() {
+		return modified;
+	}
+
+
+	public TrackMetadata getMetadata() {
+		return metadata;
+	}
+
+
+	/**
+	 * Checks whether this entry still describes a file with the given size and
+	 * modification time.
+	 *
+	 * @param fileSize The current size of the file
+	 * @param fileModified The current last modified time of the file
+	 * @return True if and only if neither has changed
+	 */
+	public boolean isCurrent(long fileSize, long fileModified) {
+		return size == fileSize && modified == fileModified;
+	}
+
+}
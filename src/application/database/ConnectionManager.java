@@ -0,0 +1,209 @@
+package application.database;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.sqlite.SQLiteConfig;
+
+/**
+ * ConnectionManager. Keeps a single long-lived connection open for each SQLite
+ * database file along with a cache of prepared statements for every query
+ * shape run against it.
+ *
+ * Connections are opened lazily on first use in write-ahead logging mode and
+ * stay open until {@link #closeAll()} is called on application shut down.
+ * Only the PersistenceQueue writer thread should use them.
+ *
+ * A database can also have a second, read-only connection for lookups made
+ * from other threads. Write-ahead logging lets it read the last committed
+ * state while the writer thread is in the middle of a transaction, so those
+ * lookups never queue behind writes.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class ConnectionManager {
+
+
+	private static final String JDBC_PREFIX = "jdbc:sqlite:";
+
+	/*
+	 * Appended to the database file path to key its read-only connection
+	 */
+	private static final String READ_ONLY_KEY = "?read-only";
+
+	/*
+	 * Open connections keyed by database file path
+	 */
+	private static final Map<String, Connection> connections = new HashMap<>();
+
+	/*
+	 * Prepared statements keyed by database file path, then by SQL string
+	 */
+	private static final Map<String, Map<String, PreparedStatement>> statements = new HashMap<>();
+
+	/*
+	 * The number of physical connections opened since start up
+	 */
+	private static int connectionOpenCount;
+
+
+	/**
+	 * Returns the open connection to the specified database file, opening it if
+	 * this is the first request for that file.
+	 *
+	 * @param databasePath The file path of the SQLite database
+	 * @return The long-lived connection to the database
+	 * @throws SQLException If the connection could not be opened
+	 */
+	public static synchronized Connection getConnection(String databasePath) throws SQLException {
+		return getConnection(databasePath, false);
+	}
+
+
+	/**
+	 * Returns the read-only connection to the specified database file, opening
+	 * it if this is the first request for it. Callers share the connection,
+	 * so they hold its lock while running a statement and reading its
+	 * results.
+	 *
+	 * @param databasePath The file path of the SQLite database
+	 * @return The long-lived read-only connection to the database
+	 * @throws SQLException If the connection could not be opened
+	 */
+	public static synchronized Connection getReadConnection(String databasePath) throws SQLException {
+		return getConnection(databasePath, true);
+	}
+
+
+	private static Connection getConnection(String databasePath, boolean readOnly) throws SQLException {
+
+		String key = readOnly ? databasePath + READ_ONLY_KEY : databasePath;
+		Connection conn = connections.get(key);
+
+		if (conn == null || conn.isClosed()) {
+
+			try {
+				Class.forName("org.sqlite.JDBC");
+			} catch (ClassNotFoundException e) {
+				throw new SQLException("SQLite JDBC driver not found", e);
+			}
+
+			if (readOnly) {
+				// the journal mode is kept in the file, set by the writer
+				SQLiteConfig config = new SQLiteConfig();
+				config.setReadOnly(true);
+				conn = DriverManager.getConnection(JDBC_PREFIX + databasePath, config.toProperties());
+
+			} else {
+				conn = DriverManager.getConnection(JDBC_PREFIX + databasePath);
+
+				try (Statement statement = conn.createStatement()) {
+					statement.execute("PRAGMA journal_mode=WAL;");
+					statement.execute("PRAGMA synchronous=NORMAL;");
+				}
+			}
+
+			connections.put(key, conn);
+			statements.put(key, new HashMap<>());
+			connectionOpenCount++;
+		}
+		return conn;
+	}
+
+
+	/**
+	 * Returns a cached prepared statement for the given SQL on the specified
+	 * database. The statement is created on first use and reused afterwards, so
+	 * callers must not close it.
+	 *
+	 * @param databasePath The file path of the SQLite database
+	 * @param sql The parameterized SQL of the statement
+	 * @return The cached prepared statement with its parameters cleared
+	 * @throws SQLException If the statement could not be prepared
+	 */
+	public static synchronized PreparedStatement prepare(String databasePath, String sql) throws SQLException {
+		return prepare(databasePath, sql, false);
+	}
+
+
+	/**
+	 * Returns a cached prepared statement for the given SQL on the read-only
+	 * connection of the specified database. The caller holds the lock of the
+	 * read-only connection while using the statement and must not close it.
+	 *
+	 * @param databasePath The file path of the SQLite database
+	 * @param sql The parameterized SQL of the statement
+	 * @return The cached prepared statement with its parameters cleared
+	 * @throws SQLException If the statement could not be prepared
+	 */
+	public static synchronized PreparedStatement prepareRead(String databasePath, String sql) throws SQLException {
+		return prepare(databasePath, sql, true);
+	}
+
+
+	private static PreparedStatement prepare(String databasePath, String sql, boolean readOnly) throws SQLException {
+
+		Connection conn = getConnection(databasePath, readOnly);
+		Map<String, PreparedStatement> cache = statements.get(readOnly ? databasePath + READ_ONLY_KEY : databasePath);
+		PreparedStatement statement = cache.get(sql);
+
+		if (statement == null || statement.isClosed()) {
+			statement = conn.prepareStatement(sql);
+			cache.put(sql, statement);
+		}
+
+		statement.clearParameters();
+		return statement;
+	}
+
+
+	/**
+	 * Returns the number of physical connections opened since start up. With
+	 * the connections being reused this should equal the number of database
+	 * files in use, plus one for each database with a read-only connection.
+	 *
+	 * @return The number of connections opened
+	 */
+	public static synchronized int getConnectionOpenCount() {
+		return connectionOpenCount;
+	}
+
+
+	/**
+	 * Closes every cached statement and open connection. This runs on
+	 * application shut down.
+	 */
+	public static synchronized void closeAll() {
+
+		for (Map<String, PreparedStatement> cache : statements.values()) {
+
+			for (PreparedStatement statement : cache.values()) {
+
+				try {
+					statement.close();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		for (Connection conn : connections.values()) {
+
+			try {
+				conn.close();
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+
+		statements.clear();
+		connections.clear();
+	}
+
+}
@@ -1,16 +1,31 @@
 package application.database;
 
 import java.sql.Connection;
-import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 import application.logic.MusicPlaylist;
 
 /**
  * Database. An SQLite database used to store playlists and playlist tracks
  * 
+ * Playlists are stored in a playlists table and their tracks in a single
+ * playlist_tracks table keyed by playlist id and track position. Positions are
+ * sparse so a track can be moved by updating its own row only.
+ * 
+ * Writes run on the PersistenceQueue writer thread and return a future that
+ * completes once they are committed. Reads run on the calling thread through
+ * the read-only connection of their database, so they see the last committed
+ * state and never wait behind queued writes.
+ * 
  * @author Rocky Robson
  * @version Jan 2, 2017
  */
@@ -19,83 +34,193 @@ public class Database {
 
 	private static final String PLAYLIST_DATABASE = "playlists.db";
 	private static final String DIRECTORY_DATABASE = "directories.db";
-	private static final String PLAYLIST_FILE_COL = "FilePath";
 	private static final String DIRECTORY_TABLE_NAME = "directories";
 
-	private static Connection conn;
-	private static Statement statement;
+	/**
+	 * Table holding one row per playlist
+	 */
+	public static final String PLAYLIST_TABLE = "playlists";
 
+	/**
+	 * Table holding the tracks of every playlist keyed by playlist and position
+	 */
+	public static final String PLAYLIST_TRACK_TABLE = "playlist_tracks";
+
+	/**
+	 * The spacing between the position keys of neighbouring tracks when they
+	 * are added. A moved track takes a key between its new neighbours, so moves
+	 * only rewrite that one row until a gap is used up.
+	 */
+	public static final long POSITION_GAP = 1024;
+
+	private static final String PLAYLIST_DB_PATH = MusicPlaylist.PLAYLIST_PATH + PLAYLIST_DATABASE;
+	private static final String DIRECTORY_DB_PATH = MusicPlaylist.PLAYLIST_PATH + DIRECTORY_DATABASE;
 
 	/*
-	 * Opens a connection to the playlist database. This connection must be
-	 * closed after use.
+	 * Subquery resolving a playlist name to its id through the unique name
+	 * index
 	 */
-	private static void connectToPlaylistDatabase() {
+	private static final String PLAYLIST_ID = "(SELECT id FROM " + PLAYLIST_TABLE + " WHERE name=?)";
 
-		try {
-			Class.forName("org.sqlite.JDBC");
-			conn = DriverManager.getConnection("jdbc:sqlite:" + MusicPlaylist.PLAYLIST_PATH + PLAYLIST_DATABASE);
-			statement = conn.createStatement();
+	/*
+	 * Query for the position key at an index of a playlist, taking the
+	 * playlist name and the index
+	 */
+	private static final String POSITION_AT = "SELECT position FROM " + PLAYLIST_TRACK_TABLE + " WHERE playlist_id="
+			+ PLAYLIST_ID + " ORDER BY position LIMIT 1 OFFSET ?";
 
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+	/*
+	 * Set once the normalized playlist tables exist and any old playlist
+	 * tables have been migrated
+	 */
+	private static volatile boolean playlistSchemaReady;
+
+
+	/*
+	 * Returns a cached statement for the playlist database. Statements are
+	 * owned by the ConnectionManager and must not be closed.
+	 */
+	private static PreparedStatement preparePlaylistStatement(String sql) throws SQLException {
+
+		if (!playlistSchemaReady)
+			createPlaylistTables();
+
+		return ConnectionManager.prepare(PLAYLIST_DB_PATH, sql);
 	}
 
 
 	/*
-	 * Opens a connection to the directory database. This connection must be
-	 * closed after use.
+	 * Creates the playlist and playlist track tables if they do not exist yet
+	 * and migrates playlists stored in the old one table per playlist layout.
+	 * The whole change runs under one savepoint, which works both on its own
+	 * and nested inside the transaction of the persistence queue, so a failed
+	 * migration leaves the database as it was.
 	 */
-	private static void connectToDirectoryDatabase() {
+	private static synchronized void createPlaylistTables() throws SQLException {
 
-		try {
-			Class.forName("org.sqlite.JDBC");
-			conn = DriverManager.getConnection("jdbc:sqlite:" + MusicPlaylist.PLAYLIST_PATH + DIRECTORY_DATABASE);
-			statement = conn.createStatement();
+		if (playlistSchemaReady)
+			return;
 
-		} catch (Exception e) {
-			e.printStackTrace();
+		Connection conn = ConnectionManager.getConnection(PLAYLIST_DB_PATH);
+
+		if (PlaylistMigrator.getSchemaVersion(conn) < PlaylistMigrator.SCHEMA_VERSION) {
+
+			try (Statement statement = conn.createStatement()) {
+
+				statement.execute("SAVEPOINT create_playlists;");
+
+				try {
+					Map<String, String> legacyTables = PlaylistMigrator.setAsideLegacyTables(conn);
+
+					statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + PLAYLIST_TABLE
+							+ " (id INTEGER PRIMARY KEY, name TEXT NOT NULL UNIQUE);");
+
+					statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + PLAYLIST_TRACK_TABLE
+							+ " (playlist_id INTEGER NOT NULL REFERENCES " + PLAYLIST_TABLE + " (id), "
+							+ "position INTEGER NOT NULL, path TEXT NOT NULL, PRIMARY KEY (playlist_id, position));");
+
+					statement.executeUpdate("CREATE INDEX IF NOT EXISTS " + PLAYLIST_TRACK_TABLE + "_path ON "
+							+ PLAYLIST_TRACK_TABLE + " (path);");
+
+					PlaylistMigrator.migrate(conn, legacyTables);
+					PlaylistMigrator.setSchemaVersion(conn);
+					statement.execute("RELEASE create_playlists;");
+
+				} catch (SQLException e) {
+					statement.execute("ROLLBACK TO create_playlists;");
+					statement.execute("RELEASE create_playlists;");
+					throw e;
+				}
+			}
+		}
+
+		playlistSchemaReady = true;
+	}
+
+
+	/*
+	 * Returns a cached statement for the read-only connection of the playlist
+	 * database. The first read waits once for the writer thread to create or
+	 * migrate the playlist tables.
+	 */
+	private static PreparedStatement preparePlaylistRead(String sql) throws SQLException {
+
+		if (!playlistSchemaReady) {
+			try {
+				PersistenceQueue.submit(PLAYLIST_DB_PATH, conn -> {
+					createPlaylistTables();
+					return null;
+				}).join();
+			} catch (CompletionException e) {
+				throw new SQLException("The playlist tables could not be created", e.getCause());
+			}
 		}
+		return ConnectionManager.prepareRead(PLAYLIST_DB_PATH, sql);
 	}
 
 
 	/*
-	 * Closes the connection to the playlist database.
+	 * Returns a cached statement for the directory database. Statements are
+	 * owned by the ConnectionManager and must not be closed.
 	 */
-	private static void disconnectFromDatabase() {
+	private static PreparedStatement prepareDirectoryStatement(String sql) throws SQLException {
+		return ConnectionManager.prepare(DIRECTORY_DB_PATH, sql);
+	}
+
+
+	private static PreparedStatement prepareDirectoryRead(String sql) throws SQLException {
+		return ConnectionManager.prepareRead(DIRECTORY_DB_PATH, sql);
+	}
+
+
+	/*
+	 * Runs a read on the calling thread through the read-only connection of a
+	 * database, holding the lock of the connection while its statements run.
+	 * Returns the fallback if the read failed.
+	 */
+	private static <T> T query(String databasePath, PersistenceQueue.Work<T> work, T fallback) {
 
 		try {
+			Connection conn = ConnectionManager.getReadConnection(databasePath);
 
-			conn.close();
+			synchronized (conn) {
+				return work.run(conn);
+			}
 
 		} catch (SQLException e) {
 			e.printStackTrace();
+			return fallback;
 		}
 	}
 
 
+	/**
+	 * Commits any queued writes and closes the long-lived database connections.
+	 * This runs on application shut down.
+	 */
+	public static void close() {
+		PersistenceQueue.shutdown();
+		System.out.println("Database connections opened: " + ConnectionManager.getConnectionOpenCount());
+	}
+
+
 	/**
 	 * Creates a new playlist.
 	 * 
 	 * @param playlistName The name of the playlist to be created
+	 * @return A future completed once the playlist is stored
 	 */
-	public static void createPlaylist(String playlistName) {
-
-		try {
-			connectToPlaylistDatabase();
-
-			String createTable = "CREATE TABLE " + playlistName + " (" + PLAYLIST_FILE_COL + " TEXT);";
-			statement.executeUpdate(createTable);
-
-			statement.close();
-			disconnectFromDatabase();
+	public static CompletableFuture<Void> createPlaylist(String playlistName) {
 
-			System.out.println("Table created successfully");
+		return PersistenceQueue.submit(PLAYLIST_DB_PATH, conn -> {
+			String create = "INSERT OR IGNORE INTO " + PLAYLIST_TABLE + " (name) VALUES (?);";
+			PreparedStatement statement = preparePlaylistStatement(create);
+			statement.setString(1, playlistName);
+			statement.executeUpdate();
 
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+			System.out.println("Playlist created successfully");
+			return null;
+		});
 	}
 
 
@@ -105,29 +230,24 @@ public class Database {
 	 * 
 	 * Also initializes the table for storage of both directories if not yet
 	 * initialized
+	 * 
+	 * @return A future completed once the table exists
 	 */
-	public static void createDirectoryTable() {
-
-		try {
-			connectToDirectoryDatabase();
+	public static CompletableFuture<Void> createDirectoryTable() {
 
+		return PersistenceQueue.submit(DIRECTORY_DB_PATH, conn -> {
 			String createTable = "CREATE TABLE IF NOT EXISTS " + DIRECTORY_TABLE_NAME
 					+ " (row INT, playlist TEXT, library TEXT);";
-			statement.executeUpdate(createTable);
+			prepareDirectoryStatement(createTable).executeUpdate();
 
 			String initialize = "INSERT INTO  " + DIRECTORY_TABLE_NAME + " (row, playlist, library) " +
 					"SELECT 1, ' ', ' ' " +
 					"WHERE NOT EXISTS (SELECT * FROM " + DIRECTORY_TABLE_NAME + " WHERE row=1);";
-			statement.executeUpdate(initialize);
-
-			statement.close();
-			disconnectFromDatabase();
+			prepareDirectoryStatement(initialize).executeUpdate();
 
 			System.out.println("Directory table created successfully");
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+			return null;
+		});
 	}
 
 
@@ -135,33 +255,27 @@ public class Database {
 	 * 
 	 * @param directoryPath
 	 */
-	public static void savePlaylistDirectory(String directoryPath) {
-		saveDirectory("playlist", directoryPath);
+	public static CompletableFuture<Void> savePlaylistDirectory(String directoryPath) {
+		return saveDirectory("playlist", directoryPath);
 	}
 
 
-	public static void saveLibraryDirectory(String directoryPath) {
-		saveDirectory("library", directoryPath);
+	public static CompletableFuture<Void> saveLibraryDirectory(String directoryPath) {
+		return saveDirectory("library", directoryPath);
 	}
 
 
-	private static void saveDirectory(String directory, String directoryPath) {
-
-		try {
-			connectToDirectoryDatabase();
-
-			String dirPath = "UPDATE " + DIRECTORY_TABLE_NAME + " SET " + directory + "='" + directoryPath
-					+ "' WHERE row=1;";
-			statement.executeUpdate(dirPath);
+	private static CompletableFuture<Void> saveDirectory(String directory, String directoryPath) {
 
-			statement.close();
-			disconnectFromDatabase();
+		return PersistenceQueue.submit(DIRECTORY_DB_PATH, conn -> {
+			String dirPath = "UPDATE " + DIRECTORY_TABLE_NAME + " SET " + directory + "=? WHERE row=1;";
+			PreparedStatement statement = prepareDirectoryStatement(dirPath);
+			statement.setString(1, directoryPath);
+			statement.executeUpdate();
 
 			System.out.println(directory + " directory saved");
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+			return null;
+		});
 	}
 
 
@@ -177,37 +291,28 @@ public class Database {
 
 	private static String retrieveDirectory(String directory) {
 
-		String result = "";
-
-		try {
-			connectToDirectoryDatabase();
-
+		return query(DIRECTORY_DB_PATH, conn -> {
+			String result = "";
 			String sql = "SELECT " + directory + " FROM " + DIRECTORY_TABLE_NAME + ";";
-			ResultSet rs = statement.executeQuery(sql);
+			ResultSet rs = prepareDirectoryRead(sql).executeQuery();
 
 			while (rs.next()) {
 				result = rs.getString(directory);
 			}
 
 			rs.close();
-			disconnectFromDatabase();
 
 			System.out.println(directory + " retrieved successfully");
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-
-		return result;
+			return result;
+		}, "");
 	}
 
 
 	public static void displayDirectories() {
-		try {
-			connectToDirectoryDatabase();
 
+		query(DIRECTORY_DB_PATH, conn -> {
 			String sql = "SELECT * FROM directories";
-			ResultSet rs = statement.executeQuery(sql);
+			ResultSet rs = prepareDirectoryRead(sql).executeQuery();
 
 			while (rs.next()) {
 				System.out.println("row: " + rs.getInt("row"));
@@ -217,11 +322,8 @@ public class Database {
 			}
 
 			rs.close();
-			disconnectFromDatabase();
-
-		} catch (SQLException e) {
-			e.printStackTrace();
-		}
+			return null;
+		}, null);
 	}
 
 
@@ -231,24 +333,75 @@ public class Database {
 	 * @param playlistName The name of the playlist where the track is to be
 	 *        added
 	 * @param filePath The file path of the track to be added
+	 * @return A future completed once the track is stored
 	 */
-	public static void addToPlaylist(String playlistName, String filePath) {
+	public static CompletableFuture<Void> addToPlaylist(String playlistName, String filePath) {
+
+		return PersistenceQueue.submit(PLAYLIST_DB_PATH, conn -> {
+			String addition = "INSERT INTO " + PLAYLIST_TRACK_TABLE + " (playlist_id, position, path) "
+					+ "SELECT p.id, COALESCE((SELECT MAX(position) FROM " + PLAYLIST_TRACK_TABLE
+					+ " WHERE playlist_id=p.id), 0) + " + POSITION_GAP + ", ? FROM " + PLAYLIST_TABLE
+					+ " p WHERE p.name=?;";
+			PreparedStatement statement = preparePlaylistStatement(addition);
+			statement.setString(1, filePath);
+			statement.setString(2, playlistName);
+			statement.executeUpdate();
 
-		try {
-			connectToPlaylistDatabase();
+			System.out.println("Playlist Updated");
+			return null;
+		});
+	}
 
-			String addition = "INSERT INTO " + playlistName + " (" + PLAYLIST_FILE_COL + ") VALUES ('" + filePath
-					+ "');";
-			statement.executeUpdate(addition);
 
-			statement.close();
-			disconnectFromDatabase();
+	/**
+	 * Adds many tracks to the specified playlist at once. The tracks are
+	 * inserted as a single batch inside one transaction and keep the order of
+	 * the list.
+	 * 
+	 * @param playlistName The name of the playlist where the tracks are to be
+	 *        added
+	 * @param filePaths The file paths of the tracks to be added
+	 * @return A future completed once the tracks are stored
+	 */
+	public static CompletableFuture<Void> addAllToPlaylist(String playlistName, List<String> filePaths) {
 
-			System.out.println("Playlist Updated");
+		return PersistenceQueue.submit(PLAYLIST_DB_PATH, conn -> {
 
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+			if (filePaths.isEmpty())
+				return null;
+
+			PreparedStatement last = preparePlaylistStatement("SELECT p.id, COALESCE(MAX(t.position), 0) AS last FROM "
+					+ PLAYLIST_TABLE + " p LEFT JOIN " + PLAYLIST_TRACK_TABLE
+					+ " t ON t.playlist_id=p.id WHERE p.name=? GROUP BY p.id;");
+			last.setString(1, playlistName);
+			ResultSet rs = last.executeQuery();
+
+			if (!rs.next()) {
+				rs.close();
+				System.out.println("Playlist " + playlistName + " does not exist");
+				return null;
+			}
+
+			long playlistId = rs.getLong("id");
+			long position = rs.getLong("last");
+			rs.close();
+
+			PreparedStatement addition = preparePlaylistStatement(
+					"INSERT INTO " + PLAYLIST_TRACK_TABLE + " (playlist_id, position, path) VALUES (?, ?, ?);");
+
+			for (String filePath : filePaths) {
+				addition.setLong(1, playlistId);
+				position += POSITION_GAP;
+				addition.setLong(2, position);
+				addition.setString(3, filePath);
+				addition.addBatch();
+			}
+
+			addition.executeBatch();
+
+			System.out.println(filePaths.size() + " tracks added to playlist");
+			return null;
+		});
 	}
 
 
@@ -260,56 +413,277 @@ public class Database {
 	 */
 	public static String[] retrievePlaylist(String playlistName) {
 
-		String[] results = null;
+		return query(PLAYLIST_DB_PATH, conn -> {
+			List<String> results = new ArrayList<>();
+			String retrieve = "SELECT path FROM " + PLAYLIST_TRACK_TABLE + " WHERE playlist_id=" + PLAYLIST_ID
+					+ " ORDER BY position;";
+			PreparedStatement statement = preparePlaylistRead(retrieve);
+			statement.setString(1, playlistName);
+			ResultSet rs = statement.executeQuery();
 
-		try {
-			connectToPlaylistDatabase();
+			while (rs.next())
+				results.add(rs.getString("path"));
+
+			rs.close();
+
+			System.out.println(playlistName + " Playlist Retrieved");
+			return results.toArray(new String[results.size()]);
+		}, new String[0]);
+	}
 
-			String retrieve = "SELECT * FROM " + playlistName;
-			ResultSet rs = statement.executeQuery(retrieve);
 
-			results = new String[getRSSize(playlistName)];
+	/**
+	 * Retrieves every track of the specified playlist in order together with
+	 * its position key
+	 * 
+	 * @param playlistName The name of the playlist to be retrieved
+	 * @return The tracks of the playlist in playlist order
+	 */
+	public static List<PlaylistTrack> retrievePlaylistTracks(String playlistName) {
 
-			int index = 0;
+		return query(PLAYLIST_DB_PATH, conn -> {
+			List<PlaylistTrack> results = new ArrayList<>();
+			String retrieve = "SELECT position, path FROM " + PLAYLIST_TRACK_TABLE + " WHERE playlist_id="
+					+ PLAYLIST_ID + " ORDER BY position;";
+			PreparedStatement statement = preparePlaylistRead(retrieve);
+			statement.setString(1, playlistName);
+			ResultSet rs = statement.executeQuery();
 
 			while (rs.next())
-				results[index++] = rs.getString(PLAYLIST_FILE_COL);
+				results.add(new PlaylistTrack(rs.getLong("position"), rs.getString("path")));
 
 			rs.close();
-			disconnectFromDatabase();
+			return results;
+		}, new ArrayList<>());
+	}
 
-			System.out.println(playlistName + " Playlist Retrieved");
 
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+	/**
+	 * Retrieves one page of a playlist starting after a known position key.
+	 * The lookup seeks straight to the key through the primary key index.
+	 * 
+	 * @param playlistName The name of the playlist
+	 * @param afterPosition The position key of the track before the page, or 0
+	 *        for the first page
+	 * @param limit The maximum number of tracks in the page
+	 * @return The tracks of the page in playlist order
+	 */
+	public static List<PlaylistTrack> retrievePlaylistPage(String playlistName, long afterPosition, int limit) {
+
+		return query(PLAYLIST_DB_PATH, conn -> {
+			String retrieve = "SELECT position, path FROM " + PLAYLIST_TRACK_TABLE + " WHERE playlist_id="
+					+ PLAYLIST_ID + " AND position>? ORDER BY position LIMIT ?;";
+			PreparedStatement statement = preparePlaylistRead(retrieve);
+			statement.setString(1, playlistName);
+			statement.setLong(2, afterPosition);
+			statement.setInt(3, limit);
+			return readPlaylistTracks(statement);
+		}, new ArrayList<>());
+	}
+
+
+	/**
+	 * Retrieves one page of a playlist starting at a track index. Used when the
+	 * position key before the page is not known, for example after jumping
+	 * far ahead in the playlist view.
+	 * 
+	 * @param playlistName The name of the playlist
+	 * @param offset The index of the first track of the page
+	 * @param limit The maximum number of tracks in the page
+	 * @return The tracks of the page in playlist order
+	 */
+	public static List<PlaylistTrack> retrievePlaylistPageAt(String playlistName, int offset, int limit) {
+
+		return query(PLAYLIST_DB_PATH, conn -> {
+			String retrieve = "SELECT position, path FROM " + PLAYLIST_TRACK_TABLE + " WHERE playlist_id="
+					+ PLAYLIST_ID + " ORDER BY position LIMIT ? OFFSET ?;";
+			PreparedStatement statement = preparePlaylistRead(retrieve);
+			statement.setString(1, playlistName);
+			statement.setInt(2, limit);
+			statement.setInt(3, offset);
+			return readPlaylistTracks(statement);
+		}, new ArrayList<>());
+	}
+
 
+	/*
+	 * Runs a playlist track query and reads its rows
+	 */
+	private static List<PlaylistTrack> readPlaylistTracks(PreparedStatement statement) throws SQLException {
+
+		List<PlaylistTrack> results = new ArrayList<>();
+		ResultSet rs = statement.executeQuery();
+
+		while (rs.next())
+			results.add(new PlaylistTrack(rs.getLong("position"), rs.getString("path")));
+
+		rs.close();
 		return results;
 	}
 
 
 	/**
-	 * Deletes a specific track from a specified playlist
+	 * Deletes a specific track from a specified playlist. Only the track at the
+	 * given index is removed, other copies of the same file stay in the
+	 * playlist. The index is resolved to its position key on the writer
+	 * thread, in the same statement as the delete.
 	 * 
 	 * @param playlistName The name of the playlist to remove a track from
-	 * @param filePath The file path of the track to be removed
+	 * @param index The index of the track to be removed in playlist order
+	 * @return A future completed once the track is removed
 	 */
-	public static void deleteFromPlaylist(String playlistName, String filePath) {
+	public static CompletableFuture<Void> deleteFromPlaylist(String playlistName, int index) {
 
-		try {
-			connectToPlaylistDatabase();
+		return PersistenceQueue.submit(PLAYLIST_DB_PATH, conn -> {
+			String remove = "DELETE FROM " + PLAYLIST_TRACK_TABLE + " WHERE playlist_id=" + PLAYLIST_ID
+					+ " AND position=(" + POSITION_AT + ");";
+			PreparedStatement statement = preparePlaylistStatement(remove);
+			statement.setString(1, playlistName);
+			statement.setString(2, playlistName);
+			statement.setInt(3, index);
+			statement.executeUpdate();
 
-			String remove = "DELETE FROM " + playlistName + " where " + PLAYLIST_FILE_COL + "='" + filePath + "';";
-			statement.executeUpdate(remove);
+			System.out.println("Track deleted from playlist");
+			return null;
+		});
+	}
 
-			statement.close();
-			disconnectFromDatabase();
 
-			System.out.println("Track deleted from playlist");
+	/**
+	 * Moves a track of a playlist to a new index. The indices are resolved to
+	 * position keys on the writer thread, and the track takes a key halfway
+	 * between its new neighbours, so only its own row is updated. When no key
+	 * is left between the neighbours the playlist is renumbered first.
+	 * 
+	 * @param playlistName The name of the playlist
+	 * @param from The index of the track to be moved
+	 * @param to The index the track should end up at
+	 * @return A future completed with the new position key of the track, or
+	 *         null if there is no track at the index
+	 */
+	public static CompletableFuture<Long> moveTrack(String playlistName, int from, int to) {
 
-		} catch (Exception e) {
-			e.printStackTrace();
+		return PersistenceQueue.submit(PLAYLIST_DB_PATH, conn -> {
+			Long position = positionAt(playlistName, from);
+
+			if (position == null)
+				return null;
+
+			long moving = position;
+			Long before;
+			Long after;
+
+			if (from < to) {
+				before = positionAt(playlistName, to);
+				after = positionAt(playlistName, to + 1);
+			} else {
+				before = to > 0 ? positionAt(playlistName, to - 1) : null;
+				after = positionAt(playlistName, to);
+			}
+
+			if (before != null && after != null && after - before < 2) {
+				Map<Long, Long> renumbered = rebalance(playlistName);
+				moving = renumbered.get(moving);
+				before = renumbered.get(before);
+				after = renumbered.get(after);
+			}
+
+			long target;
+
+			if (after == null)
+				target = lastPosition(playlistName) + POSITION_GAP;
+			else if (before == null)
+				target = after / 2;
+			else
+				target = before + (after - before) / 2;
+
+			if (target <= 0) {
+				Map<Long, Long> renumbered = rebalance(playlistName);
+				moving = renumbered.get(moving);
+				target = renumbered.get(after) / 2;
+			}
+
+			String move = "UPDATE " + PLAYLIST_TRACK_TABLE + " SET position=? WHERE playlist_id=" + PLAYLIST_ID
+					+ " AND position=?;";
+			PreparedStatement statement = preparePlaylistStatement(move);
+			statement.setLong(1, target);
+			statement.setString(2, playlistName);
+			statement.setLong(3, moving);
+			statement.executeUpdate();
+
+			System.out.println("Track moved in playlist");
+			return target;
+		});
+	}
+
+
+	/*
+	 * Returns the position key of the track at an index of a playlist, or null
+	 * if the playlist is shorter. Only the primary key index is read.
+	 */
+	private static Long positionAt(String playlistName, int index) throws SQLException {
+
+		PreparedStatement statement = preparePlaylistStatement(POSITION_AT + ";");
+		statement.setString(1, playlistName);
+		statement.setInt(2, index);
+		ResultSet rs = statement.executeQuery();
+		Long position = rs.next() ? rs.getLong("position") : null;
+		rs.close();
+		return position;
+	}
+
+
+	/*
+	 * Returns the highest position key in a playlist, or 0 if it is empty
+	 */
+	private static long lastPosition(String playlistName) throws SQLException {
+
+		PreparedStatement statement = preparePlaylistStatement("SELECT COALESCE(MAX(position), 0) AS last FROM "
+				+ PLAYLIST_TRACK_TABLE + " WHERE playlist_id=" + PLAYLIST_ID + ";");
+		statement.setString(1, playlistName);
+		ResultSet rs = statement.executeQuery();
+		long last = rs.next() ? rs.getLong("last") : 0;
+		rs.close();
+		return last;
+	}
+
+
+	/*
+	 * Spreads the position keys of a playlist evenly again, keeping its order.
+	 * Keys are first negated so that the renumbering never collides with a key
+	 * still in use. Returns the new key of every old key.
+	 */
+	private static Map<Long, Long> rebalance(String playlistName) throws SQLException {
+
+		Map<Long, Long> renumbered = new HashMap<>();
+		PreparedStatement positions = preparePlaylistStatement("SELECT position FROM " + PLAYLIST_TRACK_TABLE
+				+ " WHERE playlist_id=" + PLAYLIST_ID + " ORDER BY position;");
+		positions.setString(1, playlistName);
+		ResultSet rs = positions.executeQuery();
+
+		while (rs.next())
+			renumbered.put(rs.getLong("position"), (renumbered.size() + 1) * POSITION_GAP);
+
+		rs.close();
+
+		PreparedStatement update = preparePlaylistStatement("UPDATE " + PLAYLIST_TRACK_TABLE
+				+ " SET position=? WHERE playlist_id=" + PLAYLIST_ID + " AND position=?;");
+
+		for (Map.Entry<Long, Long> key : renumbered.entrySet()) {
+			update.setLong(1, -key.getValue());
+			update.setString(2, playlistName);
+			update.setLong(3, key.getKey());
+			update.addBatch();
 		}
+		update.executeBatch();
+
+		PreparedStatement restore = preparePlaylistStatement("UPDATE " + PLAYLIST_TRACK_TABLE
+				+ " SET position=-position WHERE playlist_id=" + PLAYLIST_ID + " AND position<0;");
+		restore.setString(1, playlistName);
+		restore.executeUpdate();
+
+		System.out.println(playlistName + " positions rebalanced");
+		return renumbered;
 	}
 
 
@@ -321,29 +695,19 @@ public class Database {
 	 */
 	public static String[] listAllPlaylists() {
 
-		String[] results = null;
-
-		try {
-			connectToPlaylistDatabase();
-
-			String tables = "SELECT name FROM sqlite_master WHERE type='table'";
-			ResultSet rs = statement.executeQuery(tables);
-
-			results = new String[getRSSize("sqlite_master")];
-			int index = 0;
+		return query(PLAYLIST_DB_PATH, conn -> {
+			List<String> results = new ArrayList<>();
+			String playlists = "SELECT name FROM " + PLAYLIST_TABLE + " ORDER BY name;";
+			ResultSet rs = preparePlaylistRead(playlists).executeQuery();
 
 			while (rs.next())
-				results[index++] = rs.getString("name");
+				results.add(rs.getString("name"));
 
 			rs.close();
-			disconnectFromDatabase();
-
-			System.out.println("Table list retrieved successfully");
 
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return results;
+			System.out.println("Playlist list retrieved successfully");
+			return results.toArray(new String[results.size()]);
+		}, new String[0]);
 	}
 
 
@@ -355,23 +719,19 @@ public class Database {
 	 */
 	public static int getRSSize(String playlistName) {
 
-		int count = 0;
-
-		try {
-			connectToPlaylistDatabase();
-
-			String numOfRows = "SELECT COUNT(*) AS total FROM " + playlistName + ";";
-			ResultSet rs = statement.executeQuery(numOfRows);
+		return query(PLAYLIST_DB_PATH, conn -> {
+			int count = 0;
+			String numOfRows = "SELECT COUNT(*) AS total FROM " + PLAYLIST_TRACK_TABLE + " WHERE playlist_id="
+					+ PLAYLIST_ID + ";";
+			PreparedStatement statement = preparePlaylistRead(numOfRows);
+			statement.setString(1, playlistName);
+			ResultSet rs = statement.executeQuery();
 
 			while (rs.next())
 				count = rs.getInt("total");
 
 			rs.close();
-			disconnectFromDatabase();
-
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return count;
+			return count;
+		}, 0);
 	}
 }
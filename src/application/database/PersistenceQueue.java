@@ -0,0 +1,306 @@
+package application.database;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * PersistenceQueue. A single writer thread that owns every database
+ * connection. Callers submit work and receive a CompletableFuture that
+ * completes once the work has been committed.
+ *
+ * Work that is waiting in the queue when the writer wakes up is run together
+ * in one transaction per database, so a burst of small writes costs a single
+ * commit.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class PersistenceQueue {
+
+
+	/**
+	 * A unit of database work run on the writer thread against the connection
+	 * of its database.
+	 *
+	 * @param <T> The type of the result
+	 */
+	public interface Work<T> {
+
+		T run(Connection conn) throws SQLException;
+	}
+
+
+	/*
+	 * The most tasks coalesced into a single transaction
+	 */
+	private static final int MAX_BATCH = 256;
+
+	private static final BlockingQueue<Task<?>> queue = new LinkedBlockingQueue<>();
+
+	private static Thread writer;
+
+	private static volatile boolean running;
+
+
+	/**
+	 * Queues work against the specified database. When called from the writer
+	 * thread itself the work runs immediately as part of the current
+	 * transaction.
+	 *
+	 * @param databasePath The file path of the SQLite database
+	 * @param work The work to run
+	 * @return A future completed with the result of the work once committed
+	 */
+	public static <T> CompletableFuture<T> submit(String databasePath, Work<T> work) {
+
+		Task<T> task = new Task<>(databasePath, work);
+
+		if (Thread.currentThread() == writer) {
+			task.runInline();
+			return task.future;
+		}
+
+		startWriter();
+		queue.add(task);
+		return task.future;
+	}
+
+
+	/**
+	 * Blocks until every write submitted so far has been committed.
+	 */
+	public static void flush() {
+
+		if (Thread.currentThread() == writer || !running)
+			return;
+
+		submit(null, conn -> null).join();
+	}
+
+
+	/**
+	 * Flushes all pending writes, stops the writer thread and closes every
+	 * connection. This runs on application shut down.
+	 */
+	public static void shutdown() {
+
+		flush();
+
+		synchronized (PersistenceQueue.class) {
+
+			if (writer != null) {
+				running = false;
+				writer.interrupt();
+
+				try {
+					writer.join();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+				writer = null;
+			}
+		}
+
+		ConnectionManager.closeAll();
+	}
+
+
+	/*
+	 * Starts the writer thread on first use
+	 */
+	private static synchronized void startWriter() {
+
+		if (writer != null)
+			return;
+
+		running = true;
+		writer = new Thread(PersistenceQueue::processQueue, "Persistence Writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+
+	/*
+	 * Writer loop. Waits for work, then runs everything queued behind it in
+	 * the same transaction.
+	 */
+	private static void processQueue() {
+
+		List<Task<?>> batch = new ArrayList<>();
+
+		while (running || !queue.isEmpty()) {
+
+			try {
+				batch.add(queue.take());
+			} catch (InterruptedException e) {
+				continue;
+			}
+
+			queue.drainTo(batch, MAX_BATCH - 1);
+			runBatch(batch);
+			batch.clear();
+		}
+	}
+
+
+	/*
+	 * Runs a batch of tasks, opening a transaction on each database the first
+	 * time one of the tasks touches it, then commits and completes the
+	 * futures. Each task runs under a savepoint of its own, so a failed task
+	 * leaves none of its writes behind while the rest of the batch is still
+	 * committed. A transaction whose commit fails is rolled back whole.
+	 */
+	private static void runBatch(List<Task<?>> batch) {
+
+		Set<Connection> transactions = new LinkedHashSet<>();
+		Set<Connection> broken = new HashSet<>();
+
+		for (Task<?> task : batch) {
+
+			if (task.databasePath == null) {
+				try {
+					task.execute(null);
+				} catch (Exception e) {
+					e.printStackTrace();
+					task.error = e;
+				}
+				continue;
+			}
+
+			Connection conn = null;
+			Savepoint savepoint = null;
+
+			try {
+				conn = ConnectionManager.getConnection(task.databasePath);
+
+				if (transactions.add(conn))
+					conn.setAutoCommit(false);
+
+				savepoint = conn.setSavepoint();
+				task.execute(conn);
+				conn.releaseSavepoint(savepoint);
+
+			} catch (Exception e) {
+				e.printStackTrace();
+				task.error = e;
+
+				if (savepoint != null)
+					rollbackTask(conn, savepoint, broken);
+			}
+		}
+
+		Exception commitError = null;
+
+		for (Connection conn : transactions) {
+
+			try {
+				if (broken.contains(conn)) {
+					conn.rollback();
+					commitError = new SQLException("A failed task could not be rolled back");
+				} else {
+					conn.commit();
+				}
+
+			} catch (SQLException e) {
+				e.printStackTrace();
+				commitError = e;
+				rollback(conn);
+			}
+
+			try {
+				conn.setAutoCommit(true);
+			} catch (SQLException e) {
+				e.printStackTrace();
+			}
+		}
+
+		for (Task<?> task : batch)
+			task.complete(commitError);
+	}
+
+
+	/*
+	 * Undoes the writes of a failed task. If even that fails the transaction
+	 * can no longer be trusted and is rolled back whole at the end of the
+	 * batch.
+	 */
+	private static void rollbackTask(Connection conn, Savepoint savepoint, Set<Connection> broken) {
+
+		try {
+			conn.rollback(savepoint);
+			conn.releaseSavepoint(savepoint);
+		} catch (SQLException e) {
+			e.printStackTrace();
+			broken.add(conn);
+		}
+	}
+
+
+	private static void rollback(Connection conn) {
+
+		try {
+			conn.rollback();
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/*
+	 * Queued work together with the future for its result
+	 */
+	private static class Task<T> {
+
+
+		private final String databasePath;
+		private final Work<T> work;
+		private final CompletableFuture<T> future = new CompletableFuture<>();
+
+		private T result;
+		private Exception error;
+
+
+		private Task(String databasePath, Work<T> work) {
+			this.databasePath = databasePath;
+			this.work = work;
+		}
+
+
+		private void execute(Connection conn) throws SQLException {
+			result = work.run(conn);
+		}
+
+
+		private void complete(Exception commitError) {
+
+			if (error != null)
+				future.completeExceptionally(error);
+			else if (commitError != null)
+				future.completeExceptionally(commitError);
+			else
+				future.complete(result);
+		}
+
+
+		private void runInline() {
+
+			try {
+				execute(databasePath == null ? null : ConnectionManager.getConnection(databasePath));
+				future.complete(result);
+			} catch (Exception e) {
+				e.printStackTrace();
+				future.completeExceptionally(e);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,210 @@
+package application.database;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PlaylistMigrator. Converts a playlist database using the old layout, where
+ * every playlist was stored in its own table, to the normalized playlists and
+ * playlist_tracks tables.
+ *
+ * A database is on the normalized layout once its user_version pragma reaches
+ * the schema version. Before that, every table whose only column is the old
+ * file path column is an old playlist, whatever it is named. Old tables are
+ * renamed out of the way before the normalized tables are created, so an old
+ * playlist named like one of the new tables is migrated rather than mistaken
+ * for it.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class PlaylistMigrator {
+
+
+	/**
+	 * The user_version of a playlist database on the normalized layout
+	 */
+	public static final int SCHEMA_VERSION = 1;
+
+	/*
+	 * The single column used by every table in the old layout
+	 */
+	private static final String LEGACY_FILE_COL = "FilePath";
+
+	/*
+	 * Old tables are renamed to this prefix followed by a number
+	 */
+	private static final String LEGACY_TABLE_PREFIX = "legacy_playlist_";
+
+
+	/**
+	 * Returns the schema version of a playlist database.
+	 *
+	 * @param conn The connection to the playlist database
+	 * @return The user_version pragma, 0 for a database on the old layout
+	 * @throws SQLException If the version could not be read
+	 */
+	public static int getSchemaVersion(Connection conn) throws SQLException {
+
+		try (Statement statement = conn.createStatement();
+				ResultSet rs = statement.executeQuery("PRAGMA user_version;")) {
+			return rs.next() ? rs.getInt(1) : 0;
+		}
+	}
+
+
+	/**
+	 * Marks a playlist database as being on the normalized layout.
+	 *
+	 * @param conn The connection to the playlist database
+	 * @throws SQLException If the version could not be written
+	 */
+	public static void setSchemaVersion(Connection conn) throws SQLException {
+
+		try (Statement statement = conn.createStatement()) {
+			statement.execute("PRAGMA user_version = " + SCHEMA_VERSION + ";");
+		}
+	}
+
+
+	/**
+	 * Renames every table of the old layout to a name that cannot collide with
+	 * the normalized tables. Must run before the normalized tables are
+	 * created.
+	 *
+	 * @param conn The connection to the playlist database
+	 * @return The playlist name of every old table, by its new table name
+	 * @throws SQLException If a table could not be renamed
+	 */
+	public static Map<String, String> setAsideLegacyTables(Connection conn) throws SQLException {
+
+		Set<String> names = new HashSet<>();
+		List<String> legacyTables = new ArrayList<>();
+
+		try (Statement statement = conn.createStatement();
+				ResultSet rs = statement
+						.executeQuery("SELECT name, type FROM sqlite_master WHERE name NOT LIKE 'sqlite_%';")) {
+
+			while (rs.next()) {
+				names.add(rs.getString("name").toLowerCase());
+
+				if ("table".equals(rs.getString("type")))
+					legacyTables.add(rs.getString("name"));
+			}
+		}
+
+		legacyTables.removeIf(table -> !isLegacyTable(conn, table));
+
+		Map<String, String> renamed = new LinkedHashMap<>();
+		int next = 1;
+
+		try (Statement statement = conn.createStatement()) {
+
+			for (String table : legacyTables) {
+
+				// table names are not case sensitive and share a namespace
+				// with indexes
+				while (names.contains(LEGACY_TABLE_PREFIX + next))
+					next++;
+
+				String name = LEGACY_TABLE_PREFIX + next++;
+				statement.executeUpdate("ALTER TABLE " + quoteIdentifier(table) + " RENAME TO " + name + ";");
+				renamed.put(name, table);
+			}
+		}
+		return renamed;
+	}
+
+
+	/**
+	 * Moves the tracks of every old style playlist table into the normalized
+	 * tables, then drops the old tables. The normalized tables must already
+	 * have been created. The caller runs this in the same transaction as
+	 * setAsideLegacyTables, so a failed migration leaves the old tables as
+	 * they were.
+	 *
+	 * @param conn The connection to the playlist database
+	 * @param legacyTables The playlist name of every old table, by table name
+	 * @return The number of playlists migrated
+	 * @throws SQLException If the migration failed
+	 */
+	public static int migrate(Connection conn, Map<String, String> legacyTables) throws SQLException {
+
+		if (legacyTables.isEmpty())
+			return 0;
+
+		try (PreparedStatement createPlaylist = conn
+				.prepareStatement("INSERT OR IGNORE INTO " + Database.PLAYLIST_TABLE + " (name) VALUES (?);");
+				PreparedStatement findPlaylist = conn
+						.prepareStatement("SELECT id FROM " + Database.PLAYLIST_TABLE + " WHERE name=?;");
+				Statement statement = conn.createStatement()) {
+
+			for (Map.Entry<String, String> table : legacyTables.entrySet()) {
+
+				createPlaylist.setString(1, table.getValue());
+				createPlaylist.executeUpdate();
+
+				findPlaylist.setString(1, table.getValue());
+				long playlistId;
+
+				try (ResultSet rs = findPlaylist.executeQuery()) {
+					rs.next();
+					playlistId = rs.getLong("id");
+				}
+
+				// rowid is unique within the old table and follows insertion
+				// order, so it is spread out into the track position
+				statement.executeUpdate("INSERT INTO " + Database.PLAYLIST_TRACK_TABLE
+						+ " (playlist_id, position, path) SELECT " + playlistId + ", rowid * "
+						+ Database.POSITION_GAP + ", " + LEGACY_FILE_COL + " FROM " + table.getKey() + " WHERE "
+						+ LEGACY_FILE_COL + " IS NOT NULL;");
+
+				statement.executeUpdate("DROP TABLE " + table.getKey() + ";");
+			}
+		}
+
+		return legacyTables.size();
+	}
+
+
+	/*
+	 * Checks whether a table has the layout of an old playlist, a single file
+	 * path column
+	 */
+	private static boolean isLegacyTable(Connection conn, String table) {
+
+		List<String> columns = new ArrayList<>();
+
+		try (Statement statement = conn.createStatement();
+				ResultSet rs = statement.executeQuery("PRAGMA table_info(" + quoteIdentifier(table) + ");")) {
+
+			while (rs.next())
+				columns.add(rs.getString("name"));
+
+		} catch (SQLException e) {
+			System.out.println("Error: Unable to read the columns of " + table);
+			e.printStackTrace();
+			return false;
+		}
+		return columns.size() == 1 && LEGACY_FILE_COL.equalsIgnoreCase(columns.get(0));
+	}
+
+
+	/*
+	 * Old playlist names were used as table names which cannot be bound as
+	 * statement parameters, so they are quoted as SQL identifiers instead.
+	 */
+	private static String quoteIdentifier(String name) {
+		return "\"" + name.replace("\"", "\"\"") + "\"";
+	}
+
+}
@@ -0,0 +1,39 @@
+package application.database;
+
+/**
+ * PlaylistTrack. A single track of a playlist together with its position key.
+ * Position keys are sparse, so they give the playlist order but not the index
+ * of a track within it.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class PlaylistTrack {
+
+
+	private final long position;
+	private final String path;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param position The position key of the track within its playlist
+	 * @param path The file path of the track
+	 */
+	public PlaylistTrack(long position, String path) {
+		this.position = position;
+		this.path = path;
+	}
+
+
+	public long getPosition() {
+		return position;
+	}
+
+
+	public String getPath() {
+		return path;
+	}
+
+}
@@ -0,0 +1,568 @@
+package application.database;
+
+import java.io.File;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import application.logic.LibraryScanner;
+import application.logic.MetaDataExtractor;
+import application.logic.MusicPlaylist;
+import application.utils.MetaDataParser;
+import application.utils.TrackMetadata;
+
+/**
+ * TrackCatalog. A persistent catalog of every track in the music library
+ * holding each file's size, modification time and parsed tags, along with
+ * where its embedded cover art lies in the file.
+ *
+ * A rescan only stats the files in the library. Tags are parsed again only
+ * for files whose size or modification time changed, in parallel, and rows are
+ * removed for files that no longer exist. A full text index over the tags is
+ * kept in step with the catalog for library search.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class TrackCatalog {
+
+
+	/**
+	 * Table holding one row per track keyed by file path
+	 */
+	public static final String TRACK_TABLE = "tracks";
+
+	/**
+	 * Full text index over the title, artist, album and file name of every
+	 * cataloged track. Its rowids match those of the track table.
+	 */
+	public static final String SEARCH_TABLE = "track_search";
+
+	private static final String LIBRARY_DATABASE = "library.db";
+	private static final String LIBRARY_DB_PATH = MusicPlaylist.PLAYLIST_PATH + LIBRARY_DATABASE;
+
+	/*
+	 * Runs catalog loads and rescans one at a time off the JavaFX thread
+	 */
+	private static final ExecutorService scanner = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Library Scanner");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static volatile boolean schemaReady;
+
+	/*
+	 * The directory walk of the latest rescan
+	 */
+	private static volatile LibraryScanner.Scan currentScan;
+
+	/*
+	 * Set when the full text index uses FTS5, which ranks matches. Older SQLite
+	 * builds only provide FTS4. Known once the writer thread has prepared the
+	 * catalog, searches made before that are left unranked.
+	 */
+	private static volatile boolean rankedSearch;
+
+
+	/*
+	 * Returns a cached statement for the library database, creating the track
+	 * table on first use. Must be called on the persistence writer thread.
+	 */
+	private static PreparedStatement prepare(String sql) throws SQLException {
+
+		if (!schemaReady) {
+
+			Connection conn = ConnectionManager.getConnection(LIBRARY_DB_PATH);
+
+			try (Statement statement = conn.createStatement()) {
+				statement.executeUpdate("CREATE TABLE IF NOT EXISTS " + TRACK_TABLE
+						+ " (path TEXT PRIMARY KEY, size INTEGER NOT NULL, mtime INTEGER NOT NULL, "
+						+ "title TEXT, artist TEXT, album TEXT, duration REAL, track_number INTEGER, "
+						+ "bitrate INTEGER, art_offset INTEGER, art_length INTEGER);");
+			}
+
+			createSearchTable(conn);
+			schemaReady = true;
+		}
+		return ConnectionManager.prepare(LIBRARY_DB_PATH, sql);
+	}
+
+
+	/*
+	 * Creates the full text index, using FTS5 when the SQLite build supports it
+	 * and FTS4 otherwise. A newly created index is filled from the existing
+	 * catalog rows.
+	 */
+	private static void createSearchTable(Connection conn) throws SQLException {
+
+		try (Statement statement = conn.createStatement()) {
+
+			String existing = null;
+
+			try (ResultSet rs = statement
+					.executeQuery("SELECT sql FROM sqlite_master WHERE name='" + SEARCH_TABLE + "';")) {
+				if (rs.next())
+					existing = rs.getString("sql");
+			}
+
+			if (existing != null) {
+				rankedSearch = existing.toLowerCase().contains("fts5");
+				return;
+			}
+
+			// a failed CREATE VIRTUAL TABLE can leave its schema entry behind
+			// inside a transaction, so check for FTS5 before creating
+			rankedSearch = false;
+
+			try (ResultSet rs = statement.executeQuery("PRAGMA compile_options;")) {
+				while (rs.next())
+					rankedSearch |= "ENABLE_FTS5".equals(rs.getString(1));
+			}
+
+			if (rankedSearch)
+				statement.executeUpdate("CREATE VIRTUAL TABLE " + SEARCH_TABLE
+						+ " USING fts5(title, artist, album, filename, prefix='2 3');");
+			else
+				statement.executeUpdate("CREATE VIRTUAL TABLE " + SEARCH_TABLE
+						+ " USING fts4(title, artist, album, filename, prefix='2,3');");
+		}
+
+		try (PreparedStatement rows = conn.prepareStatement("SELECT rowid, path FROM " + TRACK_TABLE + ";");
+				PreparedStatement index = conn.prepareStatement(indexSql());
+				ResultSet rs = rows.executeQuery()) {
+
+			while (rs.next()) {
+				index.setString(1, new File(rs.getString("path")).getName());
+				index.setString(2, rs.getString("path"));
+				index.addBatch();
+			}
+			index.executeBatch();
+		}
+	}
+
+
+	/*
+	 * Copies the tags of a track row into the full text index under the same
+	 * rowid. The parameters are the file name and the path.
+	 */
+	private static String indexSql() {
+		return "INSERT INTO " + SEARCH_TABLE + " (rowid, title, artist, album, filename) "
+				+ "SELECT rowid, title, artist, album, ? FROM " + TRACK_TABLE + " WHERE path=?;";
+	}
+
+
+	/**
+	 * Searches the catalog for tracks whose title, artist, album or file name
+	 * contain words starting with every word of the search text. Results are
+	 * ranked by relevance when the SQLite build supports FTS5. The query runs
+	 * on the calling thread through the read-only connection, so it never
+	 * waits for a rescan being written to the catalog.
+	 *
+	 * @param text The search text as typed by the user
+	 * @param limit The maximum number of results
+	 * @return The matching tracks, best match first
+	 */
+	public static List<File> search(String text, int limit) {
+
+		String match = toMatchExpression(text);
+
+		if (match.isEmpty())
+			return new ArrayList<>();
+
+		List<File> results = new ArrayList<>();
+
+		try {
+			Connection conn = ConnectionManager.getReadConnection(LIBRARY_DB_PATH);
+
+			synchronized (conn) {
+				PreparedStatement statement = ConnectionManager.prepareRead(LIBRARY_DB_PATH,
+						"SELECT t.path FROM " + SEARCH_TABLE + " s JOIN " + TRACK_TABLE
+								+ " t ON t.rowid=s.rowid WHERE " + SEARCH_TABLE + " MATCH ?"
+								+ (rankedSearch ? " ORDER BY rank" : "") + " LIMIT ?;");
+				statement.setString(1, match);
+				statement.setInt(2, limit);
+
+				try (ResultSet rs = statement.executeQuery()) {
+					while (rs.next())
+						results.add(new File(rs.getString("path")));
+				}
+			}
+
+		} catch (SQLException e) {
+			// the catalog may not have been created yet, nothing is found then
+			return new ArrayList<>();
+		}
+		return results;
+	}
+
+
+	/*
+	 * Turns search text into a full text prefix query. Every word must match
+	 * the start of a word in one of the indexed columns.
+	 */
+	private static String toMatchExpression(String text) {
+
+		StringBuilder match = new StringBuilder();
+
+		for (String word : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+
+			if (!word.isEmpty()) {
+				if (match.length() > 0)
+					match.append(' ');
+
+				match.append(word).append('*');
+			}
+		}
+		return match.toString();
+	}
+
+
+	/**
+	 * Rescans the library directory in the background.
+	 *
+	 * @param root The directory to rescan
+	 * @return A future completed once the rescan has finished
+	 */
+	public static CompletableFuture<Void> rescanInBackground(File root) {
+
+		// a scan of a library that is being replaced is no longer needed
+		LibraryScanner.Scan scan = currentScan;
+
+		if (scan != null)
+			scan.cancel();
+
+		return CompletableFuture.runAsync(() -> rescan(root), scanner);
+	}
+
+
+	/**
+	 * Looks up the catalog entry of a track through the primary key index.
+	 * The lookup runs on the calling thread through the read-only connection,
+	 * so it sees the last committed catalog and never waits for queued
+	 * writes.
+	 *
+	 * @param file The track to look up
+	 * @return The catalog entry or null if the track is not in the catalog
+	 */
+	public static CatalogEntry get(File file) {
+
+		try {
+			Connection conn = ConnectionManager.getReadConnection(LIBRARY_DB_PATH);
+
+			synchronized (conn) {
+				PreparedStatement statement = ConnectionManager.prepareRead(LIBRARY_DB_PATH,
+						"SELECT * FROM " + TRACK_TABLE + " WHERE path=?;");
+				statement.setString(1, file.getPath());
+
+				try (ResultSet rs = statement.executeQuery()) {
+					return rs.next() ? readRow(rs) : null;
+				}
+			}
+
+		} catch (SQLException e) {
+			// the catalog may not have been created yet, the track is then
+			// treated as not cataloged
+			return null;
+		}
+	}
+
+
+	/**
+	 * Hands every cataloged track below a directory to an action, one row at a
+	 * time so the whole catalog is never held in memory. Runs on the
+	 * persistence writer thread and blocks until every row has been handed
+	 * over.
+	 *
+	 * @param root The library directory
+	 * @param action Receives the entry of each track
+	 */
+	public static void forEach(File root, Consumer<CatalogEntry> action) {
+
+		String prefix = getPrefix(root.getPath());
+
+		try {
+			PersistenceQueue.submit(LIBRARY_DB_PATH, conn -> {
+				PreparedStatement statement = prepare(
+						"SELECT * FROM " + TRACK_TABLE + " WHERE path >= ? AND path < ?;");
+				statement.setString(1, prefix);
+				statement.setString(2, getUpperBound(prefix));
+				ResultSet rs = statement.executeQuery();
+
+				while (rs.next())
+					action.accept(readRow(rs));
+
+				rs.close();
+				return null;
+			}).join();
+
+		} catch (CompletionException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Stores the entry of a single track that was parsed outside a rescan.
+	 *
+	 * @param entry The entry to store
+	 * @return A future completed once the entry is stored
+	 */
+	public static CompletableFuture<Void> put(CatalogEntry entry) {
+		return store(Collections.singletonList(entry), Collections.emptyList());
+	}
+
+
+	/**
+	 * Brings the catalog rows below a directory up to date with the files on
+	 * disk. The tree is walked in parallel and files are only parsed when they
+	 * are new or their size or modification time changed.
+	 *
+	 * @param root The directory to rescan
+	 */
+	public static void rescan(File root) {
+
+		if (root == null || !root.isDirectory())
+			return;
+
+		LibraryScanner.Scan scan = LibraryScanner.scan(root, null);
+		currentScan = scan;
+
+		Map<String, BasicFileAttributes> found;
+
+		try {
+			found = scan.getResult().join();
+		} catch (CancellationException | CompletionException e) {
+			return;
+		}
+
+		Map<String, CatalogEntry> stored = queryDirectory(root.getPath());
+
+		List<File> stale = new ArrayList<>();
+
+		for (Map.Entry<String, BasicFileAttributes> track : found.entrySet()) {
+
+			BasicFileAttributes attributes = track.getValue();
+			CatalogEntry entry = stored.remove(track.getKey());
+
+			if (entry == null || !entry.isCurrent(attributes.size(), attributes.lastModifiedTime().toMillis()))
+				stale.add(new File(track.getKey()));
+		}
+
+		List<String> removed = new ArrayList<>(stored.keySet());
+		List<CatalogEntry> changed;
+
+		try {
+			// the stale files are parsed in parallel, using the attributes
+			// from the directory walk
+			changed = MetaDataExtractor.extract(stale, file -> {
+				BasicFileAttributes attributes = found.get(file.getPath());
+				return readEntry(file, attributes.size(), attributes.lastModifiedTime().toMillis());
+			}, null).join();
+
+			store(changed, removed).join();
+		} catch (CompletionException e) {
+			return;
+		}
+
+		System.out.println("Catalog rescanned: " + found.size() + " tracks, " + changed.size() + " parsed, "
+				+ removed.size() + " removed");
+	}
+
+
+	/**
+	 * Applies changes to single files without walking the library. Changed
+	 * files are parsed again, and removed paths are dropped along with every
+	 * track below them when they were directories.
+	 *
+	 * @param changed The files that were added or modified
+	 * @param removed The files and directories that were removed
+	 */
+	public static void update(Collection<File> changed, Collection<File> removed) {
+
+		if (changed.isEmpty() && removed.isEmpty())
+			return;
+
+		List<String> removedPaths = new ArrayList<>();
+
+		for (File file : removed) {
+			removedPaths.add(file.getPath());
+			removedPaths.addAll(queryDirectory(file.getPath()).keySet());
+		}
+
+		try {
+			List<CatalogEntry> entries = MetaDataExtractor
+					.extract(changed, file -> readEntry(file, file.length(), file.lastModified()), null).join();
+
+			store(entries, removedPaths).join();
+		} catch (CompletionException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/*
+	 * Parses the tags of a single file into a catalog entry
+	 */
+	private static CatalogEntry readEntry(File file, long size, long modified) {
+		return new CatalogEntry(file.getPath(), size, modified, MetaDataParser.getMetaData(file));
+	}
+
+
+	/*
+	 * Returns the stored rows of every track below a directory. The path range
+	 * uses the primary key index.
+	 */
+	private static Map<String, CatalogEntry> queryDirectory(String directory) {
+
+		String prefix = getPrefix(directory);
+
+		return query("SELECT * FROM " + TRACK_TABLE + " WHERE path >= ? AND path < ?;", prefix,
+				getUpperBound(prefix));
+	}
+
+
+	/*
+	 * The lowest path below a directory
+	 */
+	private static String getPrefix(String directory) {
+		return directory.endsWith(File.separator) ? directory : directory + File.separator;
+	}
+
+
+	/*
+	 * The lowest path above every path starting with a prefix
+	 */
+	private static String getUpperBound(String prefix) {
+		return prefix.substring(0, prefix.length() - 1) + (char) (File.separatorChar + 1);
+	}
+
+
+	/*
+	 * Runs a query against the track table on the writer thread and returns
+	 * the rows keyed by path
+	 */
+	private static Map<String, CatalogEntry> query(String sql, String... parameters) {
+
+		try {
+			return PersistenceQueue.submit(LIBRARY_DB_PATH, conn -> {
+				Map<String, CatalogEntry> rows = new HashMap<>();
+				PreparedStatement statement = prepare(sql);
+
+				for (int i = 0; i < parameters.length; i++)
+					statement.setString(i + 1, parameters[i]);
+
+				ResultSet rs = statement.executeQuery();
+
+				while (rs.next()) {
+					CatalogEntry entry = readRow(rs);
+					rows.put(entry.getPath(), entry);
+				}
+
+				rs.close();
+				return rows;
+			}).join();
+
+		} catch (CompletionException e) {
+			return new HashMap<>();
+		}
+	}
+
+
+	/*
+	 * Reads the current row of a query over the track table
+	 */
+	private static CatalogEntry readRow(ResultSet rs) throws SQLException {
+
+		TrackMetadata metadata = new TrackMetadata(rs.getString("title"), rs.getString("artist"),
+				rs.getString("album"), rs.getInt("track_number"), rs.getDouble("duration"), rs.getInt("bitrate"),
+				rs.getLong("art_offset"), rs.getInt("art_length"));
+
+		return new CatalogEntry(rs.getString("path"), rs.getLong("size"), rs.getLong("mtime"), metadata);
+	}
+
+
+	/*
+	 * Writes changed rows and deletes removed rows in a single transaction,
+	 * keeping the full text index in step with the track table
+	 */
+	private static CompletableFuture<Void> store(List<CatalogEntry> changed, List<String> removed) {
+
+		return PersistenceQueue.submit(LIBRARY_DB_PATH, conn -> {
+
+			PreparedStatement unindex = prepare("DELETE FROM " + SEARCH_TABLE + " WHERE rowid=(SELECT rowid FROM "
+					+ TRACK_TABLE + " WHERE path=?);");
+
+			for (CatalogEntry entry : changed) {
+				unindex.setString(1, entry.getPath());
+				unindex.addBatch();
+			}
+
+			for (String path : removed) {
+				unindex.setString(1, path);
+				unindex.addBatch();
+			}
+			unindex.executeBatch();
+
+			if (!changed.isEmpty()) {
+				PreparedStatement upsert = prepare("INSERT OR REPLACE INTO " + TRACK_TABLE
+						+ " (path, size, mtime, title, artist, album, duration, track_number, bitrate, art_offset, "
+						+ "art_length) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?);");
+
+				for (CatalogEntry entry : changed) {
+					TrackMetadata metadata = entry.getMetadata();
+					upsert.setString(1, entry.getPath());
+					upsert.setLong(2, entry.getSize());
+					upsert.setLong(3, entry.getModified());
+					upsert.setString(4, metadata.getTitle());
+					upsert.setString(5, metadata.getArtist());
+					upsert.setString(6, metadata.getAlbum());
+					upsert.setDouble(7, metadata.getDuration());
+					upsert.setInt(8, metadata.getTrackNumber());
+					upsert.setInt(9, metadata.getBitrate());
+					upsert.setLong(10, metadata.getArtOffset());
+					upsert.setInt(11, metadata.getArtLength());
+					upsert.addBatch();
+				}
+				upsert.executeBatch();
+
+				PreparedStatement index = prepare(indexSql());
+
+				for (CatalogEntry entry : changed) {
+					index.setString(1, new File(entry.getPath()).getName());
+					index.setString(2, entry.getPath());
+					index.addBatch();
+				}
+				index.executeBatch();
+			}
+
+			if (!removed.isEmpty()) {
+				PreparedStatement delete = prepare("DELETE FROM " + TRACK_TABLE + " WHERE path=?;");
+
+				for (String path : removed) {
+					delete.setString(1, path);
+					delete.addBatch();
+				}
+				delete.executeBatch();
+			}
+			return null;
+		});
+	}
+
+}
@@ -4,6 +4,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import application.database.Database;
+import application.logic.LibraryWatcher;
 import application.logic.MusicPlaylist;
 import javafx.application.Application;
 import javafx.event.EventHandler;
@@ -40,6 +41,8 @@ public class Main extends Application {
 			@Override
 			public void handle(WindowEvent event) {
 				MusicPlaylist.saveCurrentPlaylistSelection();
+				LibraryWatcher.stop();
+				Database.close();
 			}
 			
 		});
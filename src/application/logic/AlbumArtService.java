@@ -0,0 +1,294 @@
+package application.logic;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javafx.application.Platform;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
+
+/**
+ * AlbumArtService. Finds and shows the album art of a folder without blocking
+ * the JavaFX thread.
+ *
+ * The cover found for a folder is remembered, so a folder is only searched
+ * once. Covers are decoded in the background at the size of the image view
+ * showing them, from the nearest thumbnail. Decoded images are kept in a least
+ * recently used cache bounded by the bytes their pixels take, which can be set
+ * with the albumart.cacheBytes system property. Showing a folder whose cover is
+ * still cached is immediate.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class AlbumArtService {
+
+
+	/*
+	 * The most bytes of decoded pixels held by the image cache
+	 */
+	private static final long MAX_CACHE_BYTES = Long.getLong("albumart.cacheBytes", 16L * 1024 * 1024);
+
+	/*
+	 * The most tracks of a folder searched for embedded album art
+	 */
+	private static final int MAX_ART_TRACKS = 3;
+
+	/*
+	 * Loose images named like a cover are preferred over other images
+	 */
+	private static final String[] COVER_NAMES = { "cover", "folder", "front", "album" };
+
+	private static final String DEFAULT_ART = "images/Music_Library.png";
+
+	/*
+	 * Marks a folder known to have no album art, as the map holds no nulls
+	 */
+	private static final File NO_COVER = new File("");
+
+	private static final ExecutorService finder = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Album Art Finder");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/*
+	 * The source of the cover of each searched folder, an image or a track
+	 * with embedded art, by folder path
+	 */
+	private static final Map<String, File> covers = new ConcurrentHashMap<>();
+
+	/*
+	 * Decoded covers by folder path and size, least recently used first. Only
+	 * used on the JavaFX thread.
+	 */
+	private static final Map<String, CachedImage> images = new LinkedHashMap<>(16, 0.75f, true);
+
+	private static long cachedBytes;
+
+	/*
+	 * The folder the image view was last asked to show. Only used on the
+	 * JavaFX thread.
+	 */
+	private static String requested;
+
+
+	/**
+	 * Shows the album art of a folder in an image view. A cached cover is
+	 * shown at once, otherwise the cover is found and decoded in the
+	 * background and shown unless another folder was asked for in the
+	 * meantime. Must be called on the JavaFX thread.
+	 *
+	 * @param directory The folder containing a cover image or tracks with
+	 *            album art
+	 * @param view The image view showing the album art
+	 */
+	public static void show(File directory, ImageView view) {
+
+		if (directory == null)
+			return;
+
+		int width = getRequestedSize(view.getFitWidth());
+		int height = getRequestedSize(view.getFitHeight());
+		String key = directory.getPath() + ':' + width + 'x' + height;
+		requested = key;
+
+		CachedImage cached = images.get(key);
+
+		if (cached != null && !cached.image.isError()) {
+			view.setImage(cached.image);
+			return;
+		}
+
+		CompletableFuture.supplyAsync(() -> getCoverUrl(directory, Math.max(width, height)), finder)
+				.thenAccept(url -> Platform.runLater(() -> {
+
+					// the image decodes on a background thread of its own
+					Image image = new Image(url, width, height, true, true, true);
+					put(key, image, (long) width * height * 4);
+
+					if (key.equals(requested))
+						view.setImage(image);
+				}));
+	}
+
+
+	/**
+	 * Forgets the covers of folders whose contents changed, so they are
+	 * searched again the next time they are shown.
+	 *
+	 * @param directories The changed folders
+	 */
+	public static void invalidate(Collection<File> directories) {
+
+		for (File directory : directories)
+			covers.remove(directory.getPath());
+
+		Platform.runLater(() -> {
+			Iterator<Map.Entry<String, CachedImage>> entries = images.entrySet().iterator();
+
+			while (entries.hasNext()) {
+				Map.Entry<String, CachedImage> entry = entries.next();
+
+				for (File directory : directories) {
+					if (entry.getKey().startsWith(directory.getPath() + ':')) {
+						cachedBytes -= entry.getValue().bytes;
+						entries.remove();
+						break;
+					}
+				}
+			}
+		});
+	}
+
+
+	/*
+	 * Stores a decoded cover, dropping the least recently used covers until
+	 * the cache fits its bound again
+	 */
+	private static void put(String key, Image image, long bytes) {
+
+		CachedImage previous = images.put(key, new CachedImage(image, bytes));
+
+		if (previous != null)
+			cachedBytes -= previous.bytes;
+
+		cachedBytes += bytes;
+
+		Iterator<CachedImage> eldest = images.values().iterator();
+
+		while (cachedBytes > MAX_CACHE_BYTES && images.size() > 1) {
+			cachedBytes -= eldest.next().bytes;
+			eldest.remove();
+		}
+	}
+
+
+	/*
+	 * Returns the URL of the thumbnail of a folder's cover nearest the given
+	 * size, or of the default art when the folder has none
+	 */
+	private static String getCoverUrl(File directory, int size) {
+
+		File source = covers.computeIfAbsent(directory.getPath(), path -> findCover(directory));
+		File thumbnail = null;
+
+		if (source != NO_COVER)
+			thumbnail = ThumbnailCache.getThumbnail(source, getThumbnailSize(size));
+
+		if (thumbnail != null) {
+
+			try {
+				return thumbnail.toURI().toURL().toString();
+			} catch (MalformedURLException e) {
+				System.out.println("Error: Unable to load album art");
+				e.printStackTrace();
+			}
+		}
+		return DEFAULT_ART;
+	}
+
+
+	/*
+	 * Looks for a cover image in a folder, preferring one named like a cover,
+	 * and then for embedded art in its first tracks
+	 */
+	private static File findCover(File directory) {
+
+		File[] files = directory.listFiles();
+
+		if (files == null)
+			return NO_COVER;
+
+		Arrays.sort(files);
+		File cover = null;
+
+		for (File file : files) {
+
+			if (MusicLibrary.isJPEG(file.getPath())) {
+				if (isCoverName(file))
+					return file;
+
+				if (cover == null)
+					cover = file;
+			}
+		}
+
+		if (cover != null)
+			return cover;
+
+		// the tracks of an album usually all carry the same art or none
+		int checked = 0;
+
+		for (int i = 0; i < files.length && checked < MAX_ART_TRACKS; i++) {
+
+			if (MusicPlayer.isAcceptableFileName(files[i].getName()) && files[i].isFile()) {
+
+				// the thumbnails made here are found again when the cover is
+				// shown
+				if (ThumbnailCache.getThumbnail(files[i], ThumbnailCache.DISPLAY_SIZE) != null)
+					return files[i];
+
+				checked++;
+			}
+		}
+		return NO_COVER;
+	}
+
+
+	private static boolean isCoverName(File file) {
+
+		String name = file.getName().toLowerCase();
+
+		for (String coverName : COVER_NAMES) {
+			if (name.startsWith(coverName))
+				return true;
+		}
+		return false;
+	}
+
+
+	/*
+	 * The smallest thumbnail size at least as large as the requested size
+	 */
+	private static int getThumbnailSize(int size) {
+
+		for (int thumbnailSize : ThumbnailCache.THUMBNAIL_SIZES) {
+			if (thumbnailSize >= size)
+				return thumbnailSize;
+		}
+		return ThumbnailCache.THUMBNAIL_SIZES[ThumbnailCache.THUMBNAIL_SIZES.length - 1];
+	}
+
+
+	private static int getRequestedSize(double fitSize) {
+		return fitSize > 0 ? (int) Math.ceil(fitSize) : ThumbnailCache.DISPLAY_SIZE;
+	}
+
+
+	/*
+	 * A decoded cover with the bytes its pixels take
+	 */
+	private static class CachedImage {
+
+
+		private final Image image;
+		private final long bytes;
+
+
+		private CachedImage(Image image, long bytes) {
+			this.image = image;
+			this.bytes = bytes;
+		}
+	}
+
+}
@@ -0,0 +1,213 @@
+package application.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javafx.application.Platform;
+import javafx.collections.ObservableList;
+
+/**
+ * DirectoryLoader. Lists the contents of a directory into a list view's items
+ * on a background thread, so a slow or network mounted folder never blocks
+ * the JavaFX thread.
+ *
+ * Entries are added in batches as they are read, as rows whose text comes from
+ * the tags of each track. Starting a new load into the same items cancels the
+ * one before it, and nothing from a cancelled load is added.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class DirectoryLoader {
+
+
+	/*
+	 * The most entries added to the items at once
+	 */
+	private static final int BATCH_SIZE = 100;
+
+	/*
+	 * The longest a read entry waits before it is added, in milliseconds
+	 */
+	private static final long BATCH_INTERVAL = 50;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	/*
+	 * A stale load may still be stuck on a slow folder, so every load gets a
+	 * thread of its own rather than queueing behind it
+	 */
+	private static final ExecutorService loaders = Executors.newCachedThreadPool(runnable -> {
+		Thread thread = new Thread(runnable, "Directory Loader " + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/*
+	 * The running load of each list of items. Only used on the JavaFX thread.
+	 */
+	private static final Map<ObservableList<LibraryItem>, Load> loads = new IdentityHashMap<>();
+
+
+	/**
+	 * Replaces the items with the contents of a directory, read in the
+	 * background. Must be called on the JavaFX thread.
+	 *
+	 * @param directory The directory to list
+	 * @param items The items to fill
+	 * @param directoriesOnly True to list only folders, false to list folders
+	 *            and playable files
+	 * @return A future completed on the JavaFX thread once every entry has
+	 *         been added, never completed if the load is cancelled
+	 */
+	public static CompletableFuture<Void> load(File directory, ObservableList<LibraryItem> items,
+			boolean directoriesOnly) {
+
+		Load previous = loads.remove(items);
+
+		if (previous != null)
+			previous.cancelled = true;
+
+		items.clear();
+
+		if (directory == null)
+			return CompletableFuture.completedFuture(null);
+
+		Load load = new Load(directory.toPath(), items, directoriesOnly);
+		loads.put(items, load);
+		loaders.execute(load::run);
+		return load.done;
+	}
+
+
+	/*
+	 * A single listing of a directory into a list of items
+	 */
+	private static class Load {
+
+
+		private final Path directory;
+		private final ObservableList<LibraryItem> items;
+		private final boolean directoriesOnly;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+		private volatile boolean cancelled;
+
+
+		private Load(Path directory, ObservableList<LibraryItem> items, boolean directoriesOnly) {
+			this.directory = directory;
+			this.items = items;
+			this.directoriesOnly = directoriesOnly;
+		}
+
+
+		private void run() {
+
+			List<File> batch = new ArrayList<>();
+			Set<File> directories = new HashSet<>();
+			long batchStart = System.currentTimeMillis();
+
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+
+				for (Path entry : entries) {
+
+					if (cancelled)
+						return;
+
+					if (isListed(entry, directories)) {
+						if (batch.isEmpty())
+							batchStart = System.currentTimeMillis();
+
+						batch.add(entry.toFile());
+					}
+
+					if (batch.size() >= BATCH_SIZE
+							|| (!batch.isEmpty() && System.currentTimeMillis() - batchStart >= BATCH_INTERVAL)) {
+						deliver(batch, directories);
+						batch = new ArrayList<>();
+						directories = new HashSet<>();
+					}
+				}
+
+			} catch (IOException | DirectoryIteratorException e) {
+				System.out.println("Error: Unable to list " + directory);
+			}
+
+			deliver(batch, directories);
+			finish();
+		}
+
+
+		/*
+		 * Checks whether an entry belongs in the list, reading its attributes
+		 * once. Folders are also added to the given set.
+		 */
+		private boolean isListed(Path entry, Set<File> directories) {
+
+			try {
+				BasicFileAttributes attributes = Files.readAttributes(entry, BasicFileAttributes.class);
+
+				if (attributes.isDirectory())
+					return directories.add(entry.toFile());
+
+				return !directoriesOnly && MusicPlayer.isAcceptableFileName(entry.getFileName().toString());
+
+			} catch (IOException e) {
+				return false;
+			}
+		}
+
+
+		/*
+		 * Creates the rows of a batch, reading the tags of its tracks, and adds
+		 * them to the items
+		 */
+		private void deliver(List<File> batch, Set<File> directories) {
+
+			if (batch.isEmpty() || cancelled)
+				return;
+
+			List<File> tracks = new ArrayList<>(batch);
+			tracks.removeAll(directories);
+
+			Iterator<LibraryItem> trackItems = LibraryItem.forTracks(tracks, false).iterator();
+			List<LibraryItem> rows = new ArrayList<>(batch.size());
+
+			for (File file : batch)
+				rows.add(directories.contains(file) ? LibraryItem.forDirectory(file) : trackItems.next());
+
+			Platform.runLater(() -> {
+				if (!cancelled)
+					items.addAll(rows);
+			});
+		}
+
+
+		private void finish() {
+
+			Platform.runLater(() -> {
+				if (loads.get(items) == this)
+					loads.remove(items);
+
+				if (!cancelled)
+					done.complete(null);
+			});
+		}
+	}
+
+}
@@ -0,0 +1,304 @@
+package application.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.apache.commons.io.FilenameUtils;
+
+import application.utils.ID3TagReader;
+
+/**
+ * DuplicateFinder. Finds tracks with the same audio anywhere in a library
+ * tree, reading as little of each file as it can.
+ *
+ * The search narrows the candidates in three stages. Files are first grouped
+ * by size, taken from the directory walk, so a file with a size of its own is
+ * never opened. Files sharing a size are then hashed by a few samples of their
+ * audio, skipping the ID3 tags of MP3 files. Only files whose samples still
+ * match are hashed in full. Files are read through memory mappings, in
+ * parallel on a pool of worker threads.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class DuplicateFinder {
+
+
+	/*
+	 * The length of each sample of the audio hashed in the second stage
+	 */
+	private static final int SAMPLE_SIZE = 64 * 1024;
+
+	/*
+	 * The most bytes mapped at once while hashing a whole file
+	 */
+	private static final int MAP_SIZE = 16 * 1024 * 1024;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	/*
+	 * Runs the stages one after another, waiting on the hashers in between
+	 */
+	private static final ExecutorService finder = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Duplicate Finder");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final ExecutorService hashers = Executors
+			.newFixedThreadPool(Math.max(1, Runtime.getRuntime().availableProcessors()), runnable -> {
+				Thread thread = new Thread(runnable, "Duplicate Hasher " + threadCount.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+
+
+	/**
+	 * Finds the duplicate tracks below a directory in the background.
+	 *
+	 * @param root The directory to search, normally the library directory
+	 * @return A future completed with the groups of tracks sharing the same
+	 *         audio, the groups wasting the most space first
+	 */
+	public static CompletableFuture<List<List<File>>> find(File root) {
+
+		return LibraryScanner.scan(root, null).getResult().thenApplyAsync(tracks -> {
+
+			List<Group> candidates = groupBySize(tracks);
+			candidates = regroup(candidates, DuplicateFinder::hashSamples);
+			candidates = regroup(candidates, DuplicateFinder::hashAudio);
+
+			candidates.sort(Comparator.comparingLong(Group::getWasted).reversed());
+
+			List<List<File>> duplicates = new ArrayList<>(candidates.size());
+
+			for (Group group : candidates)
+				duplicates.add(group.files);
+
+			return duplicates;
+		}, finder);
+	}
+
+
+	/*
+	 * Groups the scanned tracks by size, keeping sizes shared by several
+	 * tracks
+	 */
+	private static List<Group> groupBySize(Map<String, BasicFileAttributes> tracks) {
+
+		Map<Long, List<File>> bySize = new HashMap<>();
+
+		for (Map.Entry<String, BasicFileAttributes> track : tracks.entrySet())
+			bySize.computeIfAbsent(track.getValue().size(), size -> new ArrayList<>())
+					.add(new File(track.getKey()));
+
+		List<Group> shared = new ArrayList<>();
+
+		for (Map.Entry<Long, List<File>> group : bySize.entrySet())
+			keepShared(group.getKey(), group.getValue(), shared);
+
+		return shared;
+	}
+
+
+	/*
+	 * Splits every group by a hash of its files, computed in parallel, and
+	 * keeps the hashes shared by several files. Files that cannot be read are
+	 * left out.
+	 */
+	private static List<Group> regroup(List<Group> groups, Function<File, String> hasher) {
+
+		List<CompletableFuture<List<Group>>> tasks = new ArrayList<>();
+
+		for (Group group : groups) {
+
+			List<CompletableFuture<String>> hashes = new ArrayList<>();
+
+			for (File file : group.files)
+				hashes.add(CompletableFuture.supplyAsync(() -> hasher.apply(file), hashers));
+
+			tasks.add(CompletableFuture.allOf(hashes.toArray(new CompletableFuture<?>[hashes.size()]))
+					.thenApply(done -> {
+						Map<String, List<File>> byHash = new HashMap<>();
+
+						for (int i = 0; i < group.files.size(); i++) {
+							String hash = hashes.get(i).join();
+
+							if (hash != null)
+								byHash.computeIfAbsent(hash, key -> new ArrayList<>()).add(group.files.get(i));
+						}
+
+						List<Group> shared = new ArrayList<>();
+
+						for (List<File> files : byHash.values())
+							keepShared(group.size, files, shared);
+
+						return shared;
+					}));
+		}
+
+		List<Group> regrouped = new ArrayList<>();
+
+		for (CompletableFuture<List<Group>> task : tasks)
+			regrouped.addAll(task.join());
+
+		return regrouped;
+	}
+
+
+	private static void keepShared(long size, List<File> files, List<Group> shared) {
+
+		if (files.size() > 1)
+			shared.add(new Group(size, files));
+	}
+
+
+	/*
+	 * Hashes the start, middle and end of the audio of a file. Audio shorter
+	 * than the samples is hashed whole, prefixed so it is never taken for a
+	 * full hash of a longer file.
+	 */
+	private static String hashSamples(File file) {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			long[] audio = getAudioRange(file, channel);
+			long length = audio[1] - audio[0];
+			MessageDigest digest = newDigest();
+
+			if (length <= 3L * SAMPLE_SIZE) {
+				hash(channel, audio[0], length, digest);
+				return "whole:" + toHex(digest.digest());
+			}
+
+			hash(channel, audio[0], SAMPLE_SIZE, digest);
+			hash(channel, audio[0] + (length - SAMPLE_SIZE) / 2, SAMPLE_SIZE, digest);
+			hash(channel, audio[1] - SAMPLE_SIZE, SAMPLE_SIZE, digest);
+			return toHex(digest.digest());
+
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Error: Unable to read " + file);
+			return null;
+		}
+	}
+
+
+	/*
+	 * Hashes the whole audio of a file. Audio already hashed whole by its
+	 * samples keeps that hash.
+	 */
+	private static String hashAudio(File file) {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			long[] audio = getAudioRange(file, channel);
+			long length = audio[1] - audio[0];
+
+			if (length <= 3L * SAMPLE_SIZE)
+				return hashSamples(file);
+
+			MessageDigest digest = newDigest();
+
+			for (long position = audio[0]; position < audio[1]; position += MAP_SIZE)
+				hash(channel, position, Math.min(MAP_SIZE, audio[1] - position), digest);
+
+			return toHex(digest.digest());
+
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Error: Unable to read " + file);
+			return null;
+		}
+	}
+
+
+	/*
+	 * Returns where the audio of a file starts and ends. The ID3 tags at
+	 * either end of an MP3 are left out, so copies that were tagged
+	 * differently but have the same size still match.
+	 */
+	private static long[] getAudioRange(File file, FileChannel channel) throws IOException {
+
+		if (FilenameUtils.isExtension(file.getName().toLowerCase(), "mp3")) {
+			ID3TagReader.Tag tag = ID3TagReader.read(channel);
+
+			if (tag.getAudioStart() < tag.getAudioEnd())
+				return new long[] { tag.getAudioStart(), tag.getAudioEnd() };
+		}
+		return new long[] { 0, channel.size() };
+	}
+
+
+	/*
+	 * Maps a region of a file and adds it to a digest
+	 */
+	private static void hash(FileChannel channel, long position, long length, MessageDigest digest)
+			throws IOException {
+
+		if (length <= 0)
+			return;
+
+		MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+		digest.update(region);
+	}
+
+
+	private static MessageDigest newDigest() {
+
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+
+	private static String toHex(byte[] hash) {
+
+		StringBuilder hex = new StringBuilder();
+
+		for (byte b : hash)
+			hex.append(String.format("%02x", b));
+
+		return hex.toString();
+	}
+
+
+	/*
+	 * Files of the same size, carried through the stages so sorting never
+	 * asks the file system for it again
+	 */
+	private static class Group {
+
+
+		private final long size;
+		private final List<File> files;
+
+
+		private Group(long size, List<File> files) {
+			this.size = size;
+			this.files = files;
+		}
+
+
+		private long getWasted() {
+			return size * (files.size() - 1);
+		}
+	}
+
+}
@@ -0,0 +1,487 @@
+package application.logic;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * LibraryFilter. An in-memory trigram index over the title, artist and album of
+ * every track in a library index, for narrowing the library as the user
+ * types.
+ *
+ * Text is normalized to lower case without accents, and every three letter
+ * run within a word points to the sorted ids of the tracks containing it. A
+ * filter intersects the lists of the trigrams of its words, shortest first,
+ * and checks the tracks left against the words themselves. When the text only
+ * grows, as it does while typing, the previous matches are checked against the
+ * new words directly, so a keystroke costs no more than the matches it starts
+ * from. Filtering starts once a word is three letters long, so no keystroke
+ * scans every track.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class LibraryFilter {
+
+
+	private static final int[] NO_TRACKS = new int[0];
+
+	private static volatile LibraryFilter current = new LibraryFilter(LibraryIndex.getCurrent());
+
+	private final LibraryIndex index;
+
+	/*
+	 * The sorted ids of the tracks containing each trigram. The table maps
+	 * the three characters of a trigram, packed into a long, to its list.
+	 */
+	private final TrigramTable trigramTable = new TrigramTable();
+	private final int[][] postings;
+
+	/*
+	 * The normalized text of every track as UTF-8, words separated by spaces
+	 */
+	private final byte[] text;
+	private final int[] textStart;
+
+	/*
+	 * The words and matches of the last filter, narrowed by the next one.
+	 * Only used on the JavaFX thread.
+	 */
+	private String[] lastWords;
+	private int[] lastMatches;
+
+
+	private LibraryFilter(LibraryIndex index) {
+
+		this.index = index;
+
+		int count = index.getTrackCount();
+		String[] artists = new String[index.getArtistCount()];
+		String[] albums = new String[index.getAlbumCount()];
+
+		for (int artist = 0; artist < artists.length; artist++)
+			artists[artist] = normalizeTag(index.getArtistName(artist), LibraryIndex.UNKNOWN_ARTIST);
+
+		for (int album = 0; album < albums.length; album++)
+			albums[album] = normalizeTag(index.getAlbumName(album), LibraryIndex.UNKNOWN_ALBUM);
+
+		List<Posting> building = new ArrayList<>();
+		List<byte[]> texts = new ArrayList<>(count);
+		int length = 0;
+
+		for (int track = 0; track < count; track++) {
+
+			String normalized = normalize(index.getTitle(track)) + ' ' + artists[index.getArtist(track)] + ' '
+					+ albums[index.getAlbum(track)];
+
+			for (long trigram : getTrigrams(normalized.split(" "))) {
+				int list = trigramTable.get(trigram);
+
+				if (list < 0) {
+					list = building.size();
+					trigramTable.put(trigram, list);
+					building.add(new Posting());
+				}
+				building.get(list).add(track);
+			}
+
+			byte[] encoded = normalized.getBytes(StandardCharsets.UTF_8);
+			texts.add(encoded);
+			length += encoded.length;
+		}
+
+		postings = new int[building.size()][];
+
+		for (int list = 0; list < postings.length; list++)
+			postings[list] = Arrays.copyOf(building.get(list).tracks, building.get(list).size);
+
+		text = new byte[length];
+		textStart = new int[count + 1];
+
+		for (int track = 0; track < count; track++) {
+			byte[] encoded = texts.get(track);
+			System.arraycopy(encoded, 0, text, textStart[track], encoded.length);
+			textStart[track + 1] = textStart[track] + encoded.length;
+		}
+	}
+
+
+	/**
+	 * Returns the filter of the library index built last.
+	 *
+	 * @return The current filter
+	 */
+	public static LibraryFilter getCurrent() {
+		return current;
+	}
+
+
+	/**
+	 * Builds the filter of a library index and makes it the current one.
+	 * Called on the thread that built the index.
+	 *
+	 * @param index The library index
+	 */
+	public static void build(LibraryIndex index) {
+		current = new LibraryFilter(index);
+	}
+
+
+	public LibraryIndex getIndex() {
+		return index;
+	}
+
+
+	/**
+	 * Returns the tracks whose title, artist or album contain every word of
+	 * the text. Must be called on the JavaFX thread.
+	 *
+	 * @param search The text as typed by the user
+	 * @return The ids of the matching tracks in ascending order, or null when
+	 *         no word of the text is long enough to filter by
+	 */
+	public int[] filter(String search) {
+
+		String[] words = split(normalize(search));
+		long[] trigrams = getTrigrams(words);
+
+		if (trigrams.length == 0) {
+			lastWords = null;
+			lastMatches = null;
+			return null;
+		}
+
+		int[] matches = isNarrowing(words) ? narrow(words) : search(words, trigrams);
+
+		lastWords = words;
+		lastMatches = matches;
+		return matches;
+	}
+
+
+	/*
+	 * Intersects the track lists of the trigrams, shortest first, and checks
+	 * the tracks left against the words longer than a trigram
+	 */
+	private int[] search(String[] words, long[] trigrams) {
+
+		List<int[]> lists = new ArrayList<>();
+
+		for (long trigram : trigrams) {
+			int list = trigramTable.get(trigram);
+			lists.add(list < 0 ? NO_TRACKS : postings[list]);
+		}
+
+		lists.sort((a, b) -> Integer.compare(a.length, b.length));
+		int[] candidates = null;
+
+		for (int[] list : lists)
+			candidates = candidates == null ? list : intersect(candidates, list);
+
+		// a word of three letters is a trigram of its own
+		List<String> unchecked = new ArrayList<>();
+
+		for (String word : words) {
+			if (word.length() != 3)
+				unchecked.add(word);
+		}
+		return unchecked.isEmpty() ? candidates : verify(candidates, unchecked);
+	}
+
+
+	/*
+	 * Checks the last matches against the words the last filter did not have,
+	 * leaving the track lists of the trigrams alone
+	 */
+	private int[] narrow(String[] words) {
+
+		List<String> previous = Arrays.asList(lastWords);
+		List<String> unchecked = new ArrayList<>();
+
+		for (String word : words) {
+			if (!previous.contains(word))
+				unchecked.add(word);
+		}
+		return unchecked.isEmpty() ? lastMatches : verify(lastMatches, unchecked);
+	}
+
+
+	/*
+	 * Checks whether every word of the last filter lies within a word of the
+	 * new one, so every track matching the new words matched the last ones
+	 */
+	private boolean isNarrowing(String[] words) {
+
+		if (lastWords == null)
+			return false;
+
+		for (String last : lastWords) {
+			boolean covered = false;
+
+			for (String word : words)
+				covered |= word.contains(last);
+
+			if (!covered)
+				return false;
+		}
+		return true;
+	}
+
+
+	/*
+	 * Keeps the candidates whose text contains every word. Trigrams only
+	 * narrow the candidates down, as their order within a word is not kept.
+	 */
+	private int[] verify(int[] candidates, List<String> words) {
+
+		byte[][] encoded = new byte[words.size()][];
+
+		for (int i = 0; i < encoded.length; i++)
+			encoded[i] = words.get(i).getBytes(StandardCharsets.UTF_8);
+
+		int[] matches = new int[candidates.length];
+		int count = 0;
+
+		for (int track : candidates) {
+			boolean matched = true;
+
+			for (int i = 0; i < encoded.length && matched; i++)
+				matched = contains(track, encoded[i]);
+
+			if (matched)
+				matches[count++] = track;
+		}
+		return count == matches.length ? matches : Arrays.copyOf(matches, count);
+	}
+
+
+	private boolean contains(int track, byte[] word) {
+
+		int end = textStart[track + 1] - word.length;
+
+		for (int start = textStart[track]; start <= end; start++) {
+			int i = 0;
+
+			while (i < word.length && text[start + i] == word[i])
+				i++;
+
+			if (i == word.length)
+				return true;
+		}
+		return false;
+	}
+
+
+	/*
+	 * Intersects two ascending lists of track ids
+	 */
+	private static int[] intersect(int[] a, int[] b) {
+
+		int[] result = new int[Math.min(a.length, b.length)];
+		int i = 0, j = 0, count = 0;
+
+		while (i < a.length && j < b.length) {
+
+			if (a[i] < b[j]) {
+				i++;
+			} else if (a[i] > b[j]) {
+				j++;
+			} else {
+				result[count++] = a[i];
+				i++;
+				j++;
+			}
+		}
+		return Arrays.copyOf(result, count);
+	}
+
+
+	/*
+	 * Returns the distinct trigrams within the words, each packed into a long
+	 */
+	private static long[] getTrigrams(String[] words) {
+
+		int total = 0;
+
+		for (String word : words)
+			total += Math.max(0, word.length() - 2);
+
+		long[] trigrams = new long[total];
+		int count = 0;
+
+		for (String word : words) {
+			for (int i = 0; i + 3 <= word.length(); i++)
+				trigrams[count++] = ((long) word.charAt(i) << 32) | ((long) word.charAt(i + 1) << 16)
+						| word.charAt(i + 2);
+		}
+
+		Arrays.sort(trigrams);
+		int distinct = 0;
+
+		for (int i = 0; i < trigrams.length; i++) {
+			if (i == 0 || trigrams[i] != trigrams[i - 1])
+				trigrams[distinct++] = trigrams[i];
+		}
+		return Arrays.copyOf(trigrams, distinct);
+	}
+
+
+	/*
+	 * Lower cases text, strips accents and replaces everything but letters
+	 * and digits with single spaces
+	 */
+	private static String normalize(String text) {
+
+		if (text == null)
+			return "";
+
+		String lower = text.toLowerCase(Locale.ROOT);
+
+		// accents are split off as marks of their own and dropped
+		if (!isAscii(lower))
+			lower = Normalizer.normalize(lower, Normalizer.Form.NFD);
+
+		StringBuilder normalized = new StringBuilder(lower.length());
+		boolean space = false;
+
+		for (int i = 0; i < lower.length(); i++) {
+
+			char c = lower.charAt(i);
+
+			if (Character.isLetterOrDigit(c)) {
+				if (space && normalized.length() > 0)
+					normalized.append(' ');
+
+				normalized.append(c);
+				space = false;
+
+			} else if (!isMark(c)) {
+				space = true;
+			}
+		}
+		return normalized.toString();
+	}
+
+
+	private static boolean isAscii(String text) {
+
+		for (int i = 0; i < text.length(); i++) {
+			if (text.charAt(i) >= 0x80)
+				return false;
+		}
+		return true;
+	}
+
+
+	private static boolean isMark(char c) {
+
+		int type = Character.getType(c);
+		return type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK
+				|| type == Character.ENCLOSING_MARK;
+	}
+
+
+	/*
+	 * Normalizes a tag, leaving out the placeholder of a missing tag
+	 */
+	private static String normalizeTag(String tag, String missing) {
+		return missing.equals(tag) ? "" : normalize(tag);
+	}
+
+
+	private static String[] split(String normalized) {
+		return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+	}
+
+
+	/*
+	 * An open addressing hash table from packed trigrams to the index of
+	 * their track list. Packed trigrams are never 0, which marks a free slot.
+	 */
+	private static class TrigramTable {
+
+
+		private long[] keys = new long[1024];
+		private int[] values = new int[1024];
+		private int size;
+
+
+		private int get(long key) {
+
+			int mask = keys.length - 1;
+
+			for (int slot = hash(key) & mask; keys[slot] != 0; slot = (slot + 1) & mask) {
+				if (keys[slot] == key)
+					return values[slot];
+			}
+			return -1;
+		}
+
+
+		private void put(long key, int value) {
+
+			if ((size + 1) * 2 > keys.length)
+				resize();
+
+			int mask = keys.length - 1;
+			int slot = hash(key) & mask;
+
+			while (keys[slot] != 0 && keys[slot] != key)
+				slot = (slot + 1) & mask;
+
+			if (keys[slot] == 0)
+				size++;
+
+			keys[slot] = key;
+			values[slot] = value;
+		}
+
+
+		private void resize() {
+
+			long[] oldKeys = keys;
+			int[] oldValues = values;
+
+			keys = new long[oldKeys.length * 2];
+			values = new int[oldKeys.length * 2];
+			size = 0;
+
+			for (int i = 0; i < oldKeys.length; i++) {
+				if (oldKeys[i] != 0)
+					put(oldKeys[i], oldValues[i]);
+			}
+		}
+
+
+		private static int hash(long key) {
+
+			long mixed = key * 0x9E3779B97F4A7C15L;
+			return (int) (mixed ^ (mixed >>> 32));
+		}
+	}
+
+
+	/*
+	 * A growing list of the tracks containing a trigram. Tracks are added in
+	 * ascending order, so the list stays sorted.
+	 */
+	private static class Posting {
+
+
+		private int[] tracks = new int[4];
+		private int size;
+
+
+		private void add(int track) {
+
+			if (size == tracks.length)
+				tracks = Arrays.copyOf(tracks, size * 2);
+
+			tracks[size++] = track;
+		}
+	}
+
+}
@@ -0,0 +1,723 @@
+package application.logic;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FilenameUtils;
+
+import application.database.CatalogEntry;
+import application.database.TrackCatalog;
+import application.utils.TrackMetadata;
+
+/**
+ * LibraryIndex. A compact in-memory index of every track in the music library,
+ * holding the artist and album tags of each track alongside its folder.
+ *
+ * Tracks, albums and artists are int ids into primitive arrays. Artist and
+ * album names are stored once, track titles and file names are packed as UTF-8
+ * into a single byte array each, and files are rebuilt from an interned parent
+ * folder and their name only when asked for. A track leads to its album and
+ * artist in a single array read each. The library views still group tracks by
+ * folder, the tags are read by the library filter.
+ *
+ * An index is never changed once built. A new one is built in the background
+ * whenever the track catalog changes and replaces the current one. Requests
+ * for a rebuild that arrive while one is running are merged into a single
+ * rebuild that starts once it is done.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class LibraryIndex {
+
+
+	/**
+	 * The artist name of tracks without an artist tag
+	 */
+	public static final String UNKNOWN_ARTIST = "Unknown Artist";
+
+	/**
+	 * The album name of tracks without an album tag
+	 */
+	public static final String UNKNOWN_ALBUM = "Unknown Album";
+
+	/*
+	 * Builds indexes one at a time off the JavaFX thread
+	 */
+	private static final ExecutorService indexer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Library Indexer");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static volatile LibraryIndex current = new Builder().build();
+
+	/*
+	 * The rebuild waiting for the indexer, with the library it is for and
+	 * whether it saves a snapshot. Requests made before it starts join it.
+	 */
+	private static CompletableFuture<LibraryIndex> pendingRebuild;
+	private static File pendingRoot;
+	private static boolean pendingSnapshot;
+
+	private final String[] directories;
+	private final int[] trackDirectory;
+	private final Utf8Pool names;
+	private final Utf8Pool titles;
+	private final float[] durations;
+	private final long[] sizes;
+	private final int[] trackAlbum;
+
+	private final String[] artists;
+	private final String[] albums;
+	private final int[] albumArtist;
+
+
+	private LibraryIndex(String[] directories, int[] trackDirectory, Utf8Pool names, Utf8Pool titles,
+			float[] durations, long[] sizes, int[] trackAlbum, String[] artists, String[] albums,
+			int[] albumArtist) {
+
+		this.directories = directories;
+		this.trackDirectory = trackDirectory;
+		this.names = names;
+		this.titles = titles;
+		this.durations = durations;
+		this.sizes = sizes;
+		this.trackAlbum = trackAlbum;
+		this.artists = artists;
+		this.albums = albums;
+		this.albumArtist = albumArtist;
+	}
+
+
+	/**
+	 * Returns the index of the library as of the last rebuild.
+	 *
+	 * @return The current index, empty until the first rebuild has finished
+	 */
+	public static LibraryIndex getCurrent() {
+		return current;
+	}
+
+
+	/**
+	 * Makes an index read from a library snapshot the current one, until the
+	 * first rebuild replaces it. Its library filter is built in the
+	 * background.
+	 *
+	 * @param index The restored index
+	 */
+	public static void restore(LibraryIndex index) {
+		current = index;
+		indexer.execute(() -> LibraryFilter.build(index));
+	}
+
+
+	/**
+	 * Rebuilds the index from the cataloged tracks of a library directory in
+	 * the background. The new index replaces the current one once built,
+	 * along with the library filter over it. While a rebuild is running, at
+	 * most one more is queued and every further request joins it.
+	 *
+	 * @param root The library directory
+	 * @param snapshot True to also save the new index as the library snapshot
+	 *            read at the next start, as done after a full rescan
+	 * @return A future completed with the new index
+	 */
+	public static synchronized CompletableFuture<LibraryIndex> rebuild(File root, boolean snapshot) {
+
+		pendingRoot = root;
+		pendingSnapshot |= snapshot;
+
+		if (pendingRebuild == null) {
+			pendingRebuild = new CompletableFuture<>();
+			indexer.execute(LibraryIndex::runRebuild);
+		}
+		return pendingRebuild;
+	}
+
+
+	/*
+	 * Runs the pending rebuild on the indexer thread. Requests made from here
+	 * on queue the next rebuild.
+	 */
+	private static void runRebuild() {
+
+		CompletableFuture<LibraryIndex> future;
+		File root;
+		boolean snapshot;
+
+		synchronized (LibraryIndex.class) {
+			future = pendingRebuild;
+			root = pendingRoot;
+			snapshot = pendingSnapshot;
+			pendingRebuild = null;
+			pendingSnapshot = false;
+		}
+
+		try {
+			Builder builder = new Builder();
+			TrackCatalog.forEach(root, builder::add);
+
+			LibraryIndex index = builder.build();
+			current = index;
+			LibraryFilter.build(index);
+
+			if (snapshot)
+				LibrarySnapshot.save(root, index);
+
+			future.complete(index);
+
+		} catch (RuntimeException e) {
+			System.out.println("Error: Unable to index the music library");
+			e.printStackTrace();
+			future.completeExceptionally(e);
+		}
+	}
+
+
+	public int getTrackCount() {
+		return trackAlbum.length;
+	}
+
+
+	public int getAlbumCount() {
+		return albums.length;
+	}
+
+
+	public int getArtistCount() {
+		return artists.length;
+	}
+
+
+	public int getDirectoryCount() {
+		return directories.length;
+	}
+
+
+	/**
+	 * Returns the file of a track.
+	 *
+	 * @param track The track id
+	 * @return The track file
+	 */
+	public File getFile(int track) {
+		return new File(directories[trackDirectory[track]], names.get(track));
+	}
+
+
+	/**
+	 * Returns the folder holding a track. Tracks in the same folder share the
+	 * same string.
+	 *
+	 * @param track The track id
+	 * @return The path of the folder
+	 */
+	public String getDirectory(int track) {
+		return directories[trackDirectory[track]];
+	}
+
+
+	/**
+	 * Returns the title of a track, or the name of its file without the
+	 * extension when it has no title tag.
+	 *
+	 * @param track The track id
+	 * @return The title to show
+	 */
+	public String getTitle(int track) {
+		return titles.isEmpty(track) ? FilenameUtils.getBaseName(names.get(track)) : titles.get(track);
+	}
+
+
+	/**
+	 * Returns the length of a track.
+	 *
+	 * @param track The track id
+	 * @return The length in seconds, 0 if unknown
+	 */
+	public float getDuration(int track) {
+		return durations[track];
+	}
+
+
+	/**
+	 * Returns the size of a track file.
+	 *
+	 * @param track The track id
+	 * @return The size in bytes
+	 */
+	public long getSize(int track) {
+		return sizes[track];
+	}
+
+
+	public int getAlbum(int track) {
+		return trackAlbum[track];
+	}
+
+
+	public int getArtist(int track) {
+		return albumArtist[trackAlbum[track]];
+	}
+
+
+	public String getAlbumName(int album) {
+		return albums[album];
+	}
+
+
+	public String getArtistName(int artist) {
+		return artists[artist];
+	}
+
+
+	/**
+	 * Returns a folder holding tracks.
+	 *
+	 * @param directory The folder id, from 0 up to the folder count
+	 * @return The path of the folder
+	 */
+	public String getDirectoryName(int directory) {
+		return directories[directory];
+	}
+
+
+	/**
+	 * Returns the combined length of every track in the library.
+	 *
+	 * @return The length in seconds
+	 */
+	public double getTotalDuration() {
+
+		double total = 0;
+
+		for (float duration : durations)
+			total += duration;
+
+		return total;
+	}
+
+
+	/*
+	 * The number of bytes the index takes in a snapshot
+	 */
+	int getSnapshotSize() {
+
+		int size = 4 * Integer.BYTES;
+
+		for (Utf8Pool pool : new Utf8Pool[] { Utf8Pool.of(directories), Utf8Pool.of(artists), Utf8Pool.of(albums),
+				names, titles })
+			size += pool.getSnapshotSize();
+
+		int tracks = getTrackCount();
+		size += tracks * (2 * Integer.BYTES + Float.BYTES + Long.BYTES);
+		size += albums.length * Integer.BYTES;
+		return size;
+	}
+
+
+	/*
+	 * Writes the index into a snapshot. The counts come first, then the
+	 * string table, the track records and the artist of every album, each as
+	 * a flat array.
+	 */
+	void writeSnapshot(ByteBuffer buffer) {
+
+		buffer.putInt(getTrackCount());
+		buffer.putInt(albums.length);
+		buffer.putInt(artists.length);
+		buffer.putInt(directories.length);
+
+		Utf8Pool.of(directories).write(buffer);
+		Utf8Pool.of(artists).write(buffer);
+		Utf8Pool.of(albums).write(buffer);
+		names.write(buffer);
+		titles.write(buffer);
+
+		putInts(buffer, trackDirectory);
+		putInts(buffer, trackAlbum);
+		buffer.asFloatBuffer().put(durations);
+		buffer.position(buffer.position() + durations.length * Float.BYTES);
+		buffer.asLongBuffer().put(sizes);
+		buffer.position(buffer.position() + sizes.length * Long.BYTES);
+
+		putInts(buffer, albumArtist);
+	}
+
+
+	/*
+	 * Reads an index written by writeSnapshot. The arrays are copied out of
+	 * the buffer in bulk, and only the names of folders, artists and albums
+	 * are decoded. Every count is checked against the bytes left before
+	 * anything is allocated, so a damaged snapshot throws an
+	 * IllegalArgumentException rather than running out of memory.
+	 */
+	static LibraryIndex readSnapshot(ByteBuffer buffer) {
+
+		int tracks = buffer.getInt();
+		int albumCount = buffer.getInt();
+		int artistCount = buffer.getInt();
+		int directoryCount = buffer.getInt();
+
+		String[] directories = Utf8Pool.read(buffer, directoryCount).toArray();
+		String[] artists = Utf8Pool.read(buffer, artistCount).toArray();
+		String[] albums = Utf8Pool.read(buffer, albumCount).toArray();
+		Utf8Pool names = Utf8Pool.read(buffer, tracks);
+		Utf8Pool titles = Utf8Pool.read(buffer, tracks);
+
+		int[] trackDirectory = getInts(buffer, tracks);
+		int[] trackAlbum = getInts(buffer, tracks);
+		checkLength(buffer, tracks, Float.BYTES);
+		float[] durations = new float[tracks];
+		buffer.asFloatBuffer().get(durations);
+		buffer.position(buffer.position() + tracks * Float.BYTES);
+		checkLength(buffer, tracks, Long.BYTES);
+		long[] sizes = new long[tracks];
+		buffer.asLongBuffer().get(sizes);
+		buffer.position(buffer.position() + tracks * Long.BYTES);
+
+		int[] albumArtist = getInts(buffer, albumCount);
+
+		return new LibraryIndex(directories, trackDirectory, names, titles, durations, sizes, trackAlbum, artists,
+				albums, albumArtist);
+	}
+
+
+	private static void putInts(ByteBuffer buffer, int[] values) {
+		buffer.asIntBuffer().put(values);
+		buffer.position(buffer.position() + values.length * Integer.BYTES);
+	}
+
+
+	private static int[] getInts(ByteBuffer buffer, int length) {
+
+		checkLength(buffer, length, Integer.BYTES);
+		int[] values = new int[length];
+		buffer.asIntBuffer().get(values);
+		buffer.position(buffer.position() + length * Integer.BYTES);
+		return values;
+	}
+
+
+	/*
+	 * Checks that the buffer holds the given number of values of a size
+	 */
+	private static void checkLength(ByteBuffer buffer, long length, int size) {
+
+		if (length < 0 || length * size > buffer.remaining())
+			throw new IllegalArgumentException("Snapshot length out of range: " + length);
+	}
+
+
+	/**
+	 * Builder. Collects tracks one at a time and builds an index from them.
+	 * Artist and album names are interned as they are added.
+	 */
+	public static class Builder {
+
+
+		private final Map<String, Integer> directoryIds = new HashMap<>();
+		private final List<String> directoryNames = new ArrayList<>();
+		private final Map<String, Integer> artistIds = new HashMap<>();
+		private final List<String> artistNames = new ArrayList<>();
+
+		/*
+		 * Albums are keyed by artist id and name, so albums of the same name
+		 * by different artists stay apart
+		 */
+		private final Map<String, Integer> albumIds = new HashMap<>();
+		private final List<String> albumNames = new ArrayList<>();
+		private int[] albumArtist = new int[16];
+
+		private final Utf8Pool names = new Utf8Pool();
+		private final Utf8Pool titles = new Utf8Pool();
+		private int[] trackDirectory = new int[16];
+		private int[] trackAlbum = new int[16];
+		private float[] durations = new float[16];
+		private long[] sizes = new long[16];
+		private int count;
+
+
+		/**
+		 * Adds a cataloged track.
+		 *
+		 * @param entry The catalog entry of the track
+		 */
+		public void add(CatalogEntry entry) {
+
+			TrackMetadata metadata = entry.getMetadata();
+
+			add(entry.getPath(), entry.getSize(), metadata.getTitle(), metadata.getArtist(), metadata.getAlbum(),
+					metadata.getDuration());
+		}
+
+
+		/**
+		 * Adds a track.
+		 *
+		 * @param path The path of the track file
+		 * @param size The size of the file in bytes
+		 * @param title The title tag, may be null
+		 * @param artist The artist tag, may be null
+		 * @param album The album tag, may be null
+		 * @param duration The length in seconds, 0 if unknown
+		 */
+		public void add(String path, long size, String title, String artist, String album, double duration) {
+
+			if (count == trackAlbum.length)
+				grow();
+
+			File file = new File(path);
+			String parent = file.getParent() == null ? "" : file.getParent();
+
+			trackDirectory[count] = intern(parent, parent, directoryIds, directoryNames);
+			names.add(file.getName());
+			titles.add(title == null ? "" : title.trim());
+
+			int artistId = intern(normalize(artist, UNKNOWN_ARTIST), null, artistIds, artistNames);
+			String albumName = normalize(album, UNKNOWN_ALBUM);
+			int albumId = intern(artistId + "\u0000" + albumName, albumName, albumIds, albumNames);
+
+			if (albumId == albumArtist.length)
+				albumArtist = Arrays.copyOf(albumArtist, albumId * 2);
+
+			albumArtist[albumId] = artistId;
+			trackAlbum[count] = albumId;
+			durations[count] = (float) duration;
+			sizes[count] = size;
+			count++;
+		}
+
+
+		/**
+		 * Builds the index. Artists and albums are numbered in order of their
+		 * names.
+		 *
+		 * @return The built index
+		 */
+		public LibraryIndex build() {
+
+			int[] artistOrder = sortedOrder(artistNames);
+			int[] artistRank = invert(artistOrder);
+			String[] artists = new String[artistOrder.length];
+
+			for (int i = 0; i < artistOrder.length; i++)
+				artists[i] = artistNames.get(artistOrder[i]);
+
+			int albumCount = albumNames.size();
+			int[] albumRank = invert(sortedOrder(albumNames));
+			String[] albums = new String[albumCount];
+			int[] albumArtists = new int[albumCount];
+
+			for (int album = 0; album < albumCount; album++) {
+				albums[albumRank[album]] = albumNames.get(album);
+				albumArtists[albumRank[album]] = artistRank[albumArtist[album]];
+			}
+
+			int[] trackAlbums = new int[count];
+
+			for (int track = 0; track < count; track++)
+				trackAlbums[track] = albumRank[trackAlbum[track]];
+
+			return new LibraryIndex(directoryNames.toArray(new String[directoryNames.size()]),
+					Arrays.copyOf(trackDirectory, count), names.trim(), titles.trim(), Arrays.copyOf(durations, count),
+					Arrays.copyOf(sizes, count), trackAlbums, artists, albums, albumArtists);
+		}
+
+
+		private void grow() {
+
+			int capacity = trackAlbum.length * 2;
+
+			trackDirectory = Arrays.copyOf(trackDirectory, capacity);
+			trackAlbum = Arrays.copyOf(trackAlbum, capacity);
+			durations = Arrays.copyOf(durations, capacity);
+			sizes = Arrays.copyOf(sizes, capacity);
+		}
+	}
+
+
+	/*
+	 * Returns the id of a key, giving it the next id and storing its name the
+	 * first time it is seen. The name defaults to the key.
+	 */
+	private static int intern(String key, String name, Map<String, Integer> ids, List<String> names) {
+
+		Integer id = ids.get(key);
+
+		if (id == null) {
+			id = names.size();
+			ids.put(key, id);
+			names.add(name == null ? key : name);
+		}
+		return id;
+	}
+
+
+	/*
+	 * Trims a tag, falling back to a default when it is missing
+	 */
+	private static String normalize(String tag, String missing) {
+
+		if (tag == null || tag.trim().isEmpty())
+			return missing;
+
+		return tag.trim();
+	}
+
+
+	/*
+	 * Returns the ids of a list of names ordered by name, ignoring case
+	 */
+	private static int[] sortedOrder(List<String> names) {
+
+		Integer[] order = new Integer[names.size()];
+
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+
+		Arrays.sort(order, Comparator.comparing(names::get, String.CASE_INSENSITIVE_ORDER));
+
+		int[] sorted = new int[order.length];
+
+		for (int i = 0; i < order.length; i++)
+			sorted[i] = order[i];
+
+		return sorted;
+	}
+
+
+	/*
+	 * Maps each id of an ordering to its position in the ordering
+	 */
+	private static int[] invert(int[] order) {
+
+		int[] rank = new int[order.length];
+
+		for (int i = 0; i < order.length; i++)
+			rank[order[i]] = i;
+
+		return rank;
+	}
+
+
+	/*
+	 * A list of strings packed as UTF-8 into one byte array, addressed by
+	 * offsets. Strings are decoded when read.
+	 */
+	private static class Utf8Pool {
+
+
+		private byte[] bytes = new byte[256];
+		private int[] offsets = new int[17];
+		private int count;
+
+
+		private static Utf8Pool of(String[] values) {
+
+			Utf8Pool pool = new Utf8Pool();
+
+			for (String value : values)
+				pool.add(value);
+
+			return pool.trim();
+		}
+
+
+		/*
+		 * Reads a pool of the given number of strings written by write
+		 */
+		private static Utf8Pool read(ByteBuffer buffer, int count) {
+
+			Utf8Pool pool = new Utf8Pool();
+			pool.count = count;
+			checkLength(buffer, count, Integer.BYTES);
+			pool.offsets = getInts(buffer, count + 1);
+
+			for (int i = 0; i < count; i++) {
+				if (pool.offsets[i] < 0 || pool.offsets[i] > pool.offsets[i + 1])
+					throw new IllegalArgumentException("Snapshot string offsets out of order");
+			}
+
+			checkLength(buffer, pool.offsets[count], 1);
+			pool.bytes = new byte[pool.offsets[count]];
+			buffer.get(pool.bytes);
+			return pool;
+		}
+
+
+		private void add(String value) {
+
+			byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+			int start = offsets[count];
+
+			if (start + encoded.length > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + encoded.length));
+
+			if (count + 2 > offsets.length)
+				offsets = Arrays.copyOf(offsets, offsets.length * 2);
+
+			System.arraycopy(encoded, 0, bytes, start, encoded.length);
+			offsets[++count] = start + encoded.length;
+		}
+
+
+		private String get(int index) {
+			return new String(bytes, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+		}
+
+
+		private boolean isEmpty(int index) {
+			return offsets[index] == offsets[index + 1];
+		}
+
+
+		private String[] toArray() {
+
+			String[] values = new String[count];
+
+			for (int i = 0; i < count; i++)
+				values[i] = get(i);
+
+			return values;
+		}
+
+
+		private int getSnapshotSize() {
+			return (count + 1) * Integer.BYTES + offsets[count];
+		}
+
+
+		/*
+		 * Writes the offsets of a trimmed pool followed by its bytes
+		 */
+		private void write(ByteBuffer buffer) {
+			putInts(buffer, offsets);
+			buffer.put(bytes);
+		}
+
+
+		/*
+		 * Drops the spare capacity once every string has been added
+		 */
+		private Utf8Pool trim() {
+
+			bytes = Arrays.copyOf(bytes, offsets[count]);
+			offsets = Arrays.copyOf(offsets, count + 1);
+			return this;
+		}
+	}
+
+}
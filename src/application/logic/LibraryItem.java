@@ -0,0 +1,165 @@
+package application.logic;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import org.apache.commons.io.FilenameUtils;
+
+import application.database.CatalogEntry;
+import application.utils.TrackMetadata;
+
+/**
+ * LibraryItem. A single row of the artist, track or playlist list views.
+ *
+ * Whether the row is a folder or a track and the text it displays are worked
+ * out once, off the JavaFX thread, when the list is filled. Drawing a cell then
+ * only reads the fields of its row and never touches the disk. A row is never
+ * changed, a file whose tags change gets a new row in its place.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class LibraryItem {
+
+
+	private final File file;
+	private final boolean directory;
+	private final String text;
+
+
+	private LibraryItem(File file, boolean directory, String text) {
+		this.file = file;
+		this.directory = directory;
+		this.text = text;
+	}
+
+
+	/**
+	 * Creates the row of a folder, showing the folder name.
+	 *
+	 * @param file The folder
+	 * @return The row of the folder
+	 */
+	public static LibraryItem forDirectory(File file) {
+		return new LibraryItem(file, true, file.getName());
+	}
+
+
+	/**
+	 * Creates the row of a track in the library, showing its title.
+	 *
+	 * @param file The track
+	 * @param metadata The metadata of the track, null if it could not be read
+	 * @return The row of the track
+	 */
+	public static LibraryItem forTrack(File file, TrackMetadata metadata) {
+		return new LibraryItem(file, false, hasTitle(metadata) ? metadata.getTitle() : getBaseName(file));
+	}
+
+
+	/**
+	 * Creates the row of a track in a playlist, showing its artist and title.
+	 *
+	 * @param file The track
+	 * @param metadata The metadata of the track, null if it could not be read
+	 * @return The row of the track
+	 */
+	public static LibraryItem forPlaylistTrack(File file, TrackMetadata metadata) {
+		return new LibraryItem(file, false,
+				hasTitle(metadata) ? metadata.getArtist() + " - " + metadata.getTitle() : getBaseName(file));
+	}
+
+
+	/**
+	 * Creates a blank row standing in for a track that is still being loaded.
+	 * The row has no file.
+	 *
+	 * @return The placeholder row
+	 */
+	public static LibraryItem forPendingTrack() {
+		return new LibraryItem(null, false, "");
+	}
+
+
+	/**
+	 * Creates the row of a track in the library index, showing its title.
+	 *
+	 * @param index The library index
+	 * @param track The id of the track in the index
+	 * @return The row of the track
+	 */
+	public static LibraryItem forIndexedTrack(LibraryIndex index, int track) {
+		return new LibraryItem(index.getFile(track), false, index.getTitle(track));
+	}
+
+
+	/**
+	 * Creates the rows of several tracks, reading their metadata in parallel
+	 * through the metadata cache. Blocks until every track has been read, so
+	 * it is only called from background threads, never the JavaFX thread.
+	 *
+	 * @param files The tracks
+	 * @param playlist True to create playlist rows, false for library rows
+	 * @return The rows in the order of the files
+	 */
+	public static List<LibraryItem> forTracks(List<File> files, boolean playlist) {
+
+		Map<String, TrackMetadata> metadata = new HashMap<>();
+
+		try {
+			for (CatalogEntry entry : MetaDataExtractor.extract(files, null).join())
+				metadata.put(entry.getPath(), entry.getMetadata());
+
+		} catch (CompletionException e) {
+			System.out.println("Error: Unable to read track metadata");
+			e.printStackTrace();
+		}
+
+		List<LibraryItem> items = new ArrayList<>(files.size());
+
+		for (File file : files) {
+			TrackMetadata tags = metadata.get(file.getPath());
+			items.add(playlist ? forPlaylistTrack(file, tags) : forTrack(file, tags));
+		}
+		return items;
+	}
+
+
+	public File getFile() {
+		return file;
+	}
+
+
+	public boolean isDirectory() {
+		return directory;
+	}
+
+
+	public String getText() {
+		return text;
+	}
+
+
+	private static boolean hasTitle(TrackMetadata metadata) {
+		return metadata != null && metadata.getTitle() != null;
+	}
+
+
+	/*
+	 * The file name without its extension, shown for tracks without tags
+	 */
+	private static String getBaseName(File file) {
+		return FilenameUtils.getBaseName(file.getName());
+	}
+
+
+	@Override
+	public String toString() {
+		return text;
+	}
+
+}
@@ -0,0 +1,243 @@
+package application.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import javafx.application.Platform;
+
+/**
+ * LibraryScanner. Walks a whole library tree in parallel, with one fork/join
+ * task per directory, and collects the attributes of every playable file.
+ *
+ * Each directory entry is read once. Its attributes tell directories from
+ * files and give the size and modification time the track catalog needs, and
+ * files are accepted by extension alone, so no entry is looked at twice.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class LibraryScanner {
+
+
+	/*
+	 * Directory listing mostly waits on the disk, so more workers than cores
+	 * keep it busy
+	 */
+	private static final int PARALLELISM = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+
+	/*
+	 * The least time between two progress reports in milliseconds
+	 */
+	private static final long PROGRESS_INTERVAL = 100;
+
+	private static final ForkJoinPool pool = new ForkJoinPool(PARALLELISM, forkJoinPool -> {
+		ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+		thread.setName("Library Scan Worker " + thread.getPoolIndex());
+		thread.setDaemon(true);
+		return thread;
+	}, null, false);
+
+
+	/**
+	 * Starts scanning a library tree in the background.
+	 *
+	 * @param root The library directory
+	 * @param onProgress Receives the scan on the JavaFX thread as it
+	 *            progresses and once it has finished, may be null
+	 * @return The running scan
+	 */
+	public static Scan scan(File root, Consumer<Scan> onProgress) {
+
+		Scan scan = new Scan(onProgress);
+
+		pool.execute(() -> {
+			try {
+				pool.invoke(new DirectoryTask(root.toPath(), scan));
+
+				if (scan.isCancelled())
+					scan.result.cancel(false);
+				else
+					scan.result.complete(Collections.unmodifiableMap(scan.tracks));
+
+			} catch (RuntimeException e) {
+				scan.result.completeExceptionally(e);
+			}
+			scan.report(true);
+		});
+
+		return scan;
+	}
+
+
+	/**
+	 * Scan. A running or finished scan of a library tree.
+	 */
+	public static class Scan {
+
+
+		private final Map<String, BasicFileAttributes> tracks = new ConcurrentHashMap<>();
+		private final CompletableFuture<Map<String, BasicFileAttributes>> result = new CompletableFuture<>();
+		private final LongAdder directories = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final AtomicLong lastReport = new AtomicLong();
+		private final Consumer<Scan> onProgress;
+		private volatile boolean cancelled;
+
+
+		private Scan(Consumer<Scan> onProgress) {
+			this.onProgress = onProgress;
+		}
+
+
+		/**
+		 * Returns the tracks found once the scan has finished.
+		 *
+		 * @return A future completed with the attributes of every track keyed
+		 *         by path, cancelled if the scan is
+		 */
+		public CompletableFuture<Map<String, BasicFileAttributes>> getResult() {
+			return result;
+		}
+
+
+		/**
+		 * Stops the scan. Directories already being listed are finished, no
+		 * new ones are started.
+		 */
+		public void cancel() {
+			cancelled = true;
+		}
+
+
+		public boolean isCancelled() {
+			return cancelled;
+		}
+
+
+		public boolean isDone() {
+			return result.isDone();
+		}
+
+
+		public long getDirectoryCount() {
+			return directories.sum();
+		}
+
+
+		public int getTrackCount() {
+			return tracks.size();
+		}
+
+
+		/**
+		 * Returns the combined size of the tracks found so far.
+		 *
+		 * @return The size in bytes
+		 */
+		public long getByteCount() {
+			return bytes.sum();
+		}
+
+
+		/*
+		 * Hands the scan to the progress listener, at most once per interval
+		 * unless forced
+		 */
+		private void report(boolean force) {
+
+			if (onProgress == null)
+				return;
+
+			long now = System.currentTimeMillis();
+			long last = lastReport.get();
+
+			if (force || (now - last >= PROGRESS_INTERVAL && lastReport.compareAndSet(last, now)))
+				Platform.runLater(() -> onProgress.accept(this));
+		}
+	}
+
+
+	/*
+	 * Lists one directory, keeping its tracks and forking a task for each
+	 * subdirectory
+	 */
+	private static class DirectoryTask extends RecursiveAction {
+
+
+		private static final long serialVersionUID = 1L;
+
+		private final Path directory;
+		private final Scan scan;
+
+
+		private DirectoryTask(Path directory, Scan scan) {
+			this.directory = directory;
+			this.scan = scan;
+		}
+
+
+		@Override
+		protected void compute() {
+
+			if (scan.cancelled)
+				return;
+
+			List<DirectoryTask> subdirectories = new ArrayList<>();
+
+			try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+
+				for (Path entry : entries) {
+
+					if (scan.cancelled)
+						return;
+
+					BasicFileAttributes attributes;
+
+					try {
+						// links are not followed so a link cannot lead the
+						// scan round in a loop
+						attributes = Files.readAttributes(entry, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+					} catch (IOException e) {
+						continue;
+					}
+
+					if (attributes.isDirectory()) {
+						subdirectories.add(new DirectoryTask(entry, scan));
+
+					} else if (attributes.isRegularFile()
+							&& MusicPlayer.isAcceptableFileName(entry.getFileName().toString())) {
+						scan.tracks.put(entry.toString(), attributes);
+						scan.bytes.add(attributes.size());
+					}
+				}
+
+			} catch (IOException | DirectoryIteratorException e) {
+				// unreadable directories are left out of the scan
+			}
+
+			scan.directories.increment();
+			scan.report(false);
+
+			invokeAll(subdirectories);
+		}
+	}
+
+}
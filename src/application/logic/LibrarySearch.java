@@ -0,0 +1,248 @@
+package application.logic;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+import application.database.TrackCatalog;
+import javafx.animation.PauseTransition;
+import javafx.application.Platform;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.collections.ObservableListBase;
+import javafx.scene.control.ListView;
+import javafx.scene.control.TextField;
+import javafx.util.Duration;
+
+/**
+ * LibrarySearch. Searches the whole music library from a text field as the
+ * user types.
+ *
+ * Once the library index is built, every keystroke filters it in memory
+ * through the library filter. The track list shows the matching tracks and
+ * the artist list keeps only the folders holding them. Until then the full
+ * text index of the track catalog is searched instead, after a short pause in
+ * typing and on a background thread, and results of queries that have since
+ * been replaced are discarded.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class LibrarySearch {
+
+
+	/*
+	 * Time to wait after the last keystroke before searching the catalog
+	 */
+	private static final Duration DEBOUNCE = Duration.millis(150);
+
+	/*
+	 * The most results shown for a single catalog search
+	 */
+	private static final int MAX_RESULTS = 500;
+
+	private static final ExecutorService searcher = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Library Search");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	/*
+	 * Incremented for every search so that stale results can be dropped
+	 */
+	private static final AtomicLong generation = new AtomicLong();
+
+	/*
+	 * The items the result and artist lists displayed before searching began.
+	 * These are restored when the search text is cleared.
+	 */
+	private static ObservableList<LibraryItem> browseItems;
+	private static ObservableList<LibraryItem> browseArtists;
+
+
+	/**
+	 * Sets up the search field so that the results of each search replace the
+	 * items of the result list and narrow the artist list. Clearing the field
+	 * restores the items shown before the search.
+	 *
+	 * @param field The text field the user types the search into
+	 * @param results The list view where matching tracks are displayed
+	 * @param artists The list view of the folders of the library
+	 */
+	public static void setSearchField(TextField field, ListView<LibraryItem> results,
+			ListView<LibraryItem> artists) {
+
+		PauseTransition pause = new PauseTransition(DEBOUNCE);
+		pause.setOnFinished(e -> search(field.getText(), results, artists));
+
+		field.textProperty().addListener((observable, oldText, newText) -> {
+
+			LibraryFilter filter = LibraryFilter.getCurrent();
+
+			if (newText == null || newText.trim().isEmpty()) {
+				pause.stop();
+				generation.incrementAndGet();
+				restoreBrowseItems(results, artists);
+
+			} else if (filter.getIndex().getTrackCount() > 0) {
+				pause.stop();
+				generation.incrementAndGet();
+				filter(filter, newText, results, artists);
+
+			} else {
+				pause.playFromStart();
+			}
+		});
+	}
+
+
+	/*
+	 * Filters the library index in memory and shows the matching tracks and
+	 * the folders holding them. Text too short to filter by shows the lists
+	 * as they were before searching.
+	 */
+	private static void filter(LibraryFilter filter, String text, ListView<LibraryItem> results,
+			ListView<LibraryItem> artists) {
+
+		LibraryIndex index = filter.getIndex();
+		int[] tracks = filter.filter(text);
+
+		if (tracks == null) {
+			restoreBrowseItems(results, artists);
+			return;
+		}
+
+		saveBrowseItems(results, artists);
+		results.setItems(new TrackRows(index, tracks));
+
+		if (browseArtists != null)
+			artists.setItems(browseArtists.filtered(getFolders(index, tracks)::contains));
+	}
+
+
+	/*
+	 * Returns the rows of the folders directly within the library that hold
+	 * the tracks. Tracks of the same folder share its path string, so each
+	 * folder is only resolved once.
+	 */
+	private static Set<LibraryItem> getFolders(LibraryIndex index, int[] tracks) {
+
+		File root = MusicLibrary.getLibraryDirectory();
+		Set<String> folders = new HashSet<>();
+		Map<String, String> resolved = new HashMap<>();
+
+		if (root != null) {
+			String prefix = root.getPath() + File.separator;
+
+			for (int track : tracks) {
+				String folder = resolved.computeIfAbsent(index.getDirectory(track), directory -> {
+
+					if (!directory.startsWith(prefix))
+						return directory;
+
+					int end = directory.indexOf(File.separatorChar, prefix.length());
+					return end < 0 ? directory : directory.substring(0, end);
+				});
+				folders.add(folder);
+			}
+		}
+
+		Set<LibraryItem> items = new HashSet<>();
+
+		for (LibraryItem item : browseArtists) {
+			if (folders.contains(item.getFile().getPath()))
+				items.add(item);
+		}
+		return items;
+	}
+
+
+	/*
+	 * Runs a catalog search in the background and shows its results unless a
+	 * newer search has started in the meantime
+	 */
+	private static void search(String text, ListView<LibraryItem> results, ListView<LibraryItem> artists) {
+
+		saveBrowseItems(results, artists);
+
+		long searchId = generation.incrementAndGet();
+
+		searcher.execute(() -> {
+
+			if (searchId != generation.get())
+				return;
+
+			List<LibraryItem> tracks = LibraryItem.forTracks(TrackCatalog.search(text, MAX_RESULTS), false);
+
+			Platform.runLater(() -> {
+				if (searchId == generation.get())
+					results.setItems(FXCollections.observableArrayList(tracks));
+			});
+		});
+	}
+
+
+	private static void saveBrowseItems(ListView<LibraryItem> results, ListView<LibraryItem> artists) {
+
+		if (browseItems == null) {
+			browseItems = results.getItems();
+			browseArtists = artists.getItems();
+		}
+	}
+
+
+	/*
+	 * Puts back the items the lists showed before searching began
+	 */
+	private static void restoreBrowseItems(ListView<LibraryItem> results, ListView<LibraryItem> artists) {
+
+		if (browseItems != null) {
+			results.setItems(browseItems);
+			artists.setItems(browseArtists);
+			browseItems = null;
+			browseArtists = null;
+		}
+	}
+
+
+	/*
+	 * The rows of filtered tracks, made only as the list view shows them
+	 */
+	private static class TrackRows extends ObservableListBase<LibraryItem> {
+
+
+		private final LibraryIndex index;
+		private final int[] tracks;
+		private final LibraryItem[] rows;
+
+
+		private TrackRows(LibraryIndex index, int[] tracks) {
+			this.index = index;
+			this.tracks = tracks;
+			this.rows = new LibraryItem[tracks.length];
+		}
+
+
+		@Override
+		public LibraryItem get(int position) {
+
+			if (rows[position] == null)
+				rows[position] = LibraryItem.forIndexedTrack(index, tracks[position]);
+
+			return rows[position];
+		}
+
+
+		@Override
+		public int size() {
+			return tracks.length;
+		}
+	}
+
+}
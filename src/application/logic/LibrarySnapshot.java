@@ -0,0 +1,174 @@
+package application.logic;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * LibrarySnapshot. A binary copy of the library index saved on disk, so the
+ * library can be shown at start up before anything has been scanned.
+ *
+ * The snapshot holds the library directory and the arrays of the index in a
+ * single file, behind a header with a version number. It is read whole into a
+ * heap buffer, not mapped, so no mapping holds the file open while the next
+ * snapshot is moved over it. The arrays are copied out of the buffer in bulk
+ * without parsing a record at a time. A snapshot of another version, or one
+ * that is cut short or damaged, is ignored, and the library is then loaded as
+ * it was before.
+ *
+ * A new snapshot is written to a temporary file and moved into place whenever
+ * the index is rebuilt, so a crash never leaves half a snapshot behind.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class LibrarySnapshot {
+
+
+	/**
+	 * File path where the library snapshot is stored
+	 */
+	public static final String SNAPSHOT_PATH = MusicPlaylist.PLAYLIST_PATH + "library.snapshot";
+
+	/*
+	 * The first bytes of every snapshot, "MCLS"
+	 */
+	private static final int MAGIC = 0x4D434C53;
+
+	/*
+	 * Changed whenever the layout of the snapshot changes
+	 */
+	private static final int VERSION = 2;
+
+	/*
+	 * The magic number, the version, the file length and the length of the
+	 * library directory path
+	 */
+	private static final int HEADER_SIZE = 2 * Integer.BYTES + Long.BYTES + Integer.BYTES;
+
+	private final File root;
+	private final LibraryIndex index;
+
+
+	private LibrarySnapshot(File root, LibraryIndex index) {
+		this.root = root;
+		this.index = index;
+	}
+
+
+	/**
+	 * Reads the library snapshot saved last.
+	 *
+	 * @return The snapshot, or null if there is none or it cannot be used
+	 */
+	public static LibrarySnapshot load() {
+
+		Path path = new File(SNAPSHOT_PATH).toPath();
+
+		if (!Files.isRegularFile(path))
+			return null;
+
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+
+			long size = channel.size();
+
+			if (size < HEADER_SIZE || size > Integer.MAX_VALUE)
+				return null;
+
+			ByteBuffer buffer = ByteBuffer.allocate((int) size).order(ByteOrder.LITTLE_ENDIAN);
+
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer) < 0)
+					return null;
+			}
+			buffer.flip();
+
+			if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getLong() != size)
+				return null;
+
+			int rootLength = buffer.getInt();
+
+			if (rootLength < 0 || rootLength > buffer.remaining())
+				return null;
+
+			byte[] root = new byte[rootLength];
+			buffer.get(root);
+
+			LibraryIndex index = LibraryIndex.readSnapshot(buffer);
+			return new LibrarySnapshot(new File(new String(root, StandardCharsets.UTF_8)), index);
+
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Error: Unable to read the library snapshot");
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+
+	/**
+	 * Saves the index of a library as the snapshot read at the next start,
+	 * replacing the one saved before.
+	 *
+	 * @param root The library directory
+	 * @param index The index of the library
+	 */
+	public static void save(File root, LibraryIndex index) {
+
+		byte[] rootPath = root.getPath().getBytes(StandardCharsets.UTF_8);
+		int length = HEADER_SIZE + rootPath.length + index.getSnapshotSize();
+
+		ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putLong(length);
+		buffer.putInt(rootPath.length);
+		buffer.put(rootPath);
+		index.writeSnapshot(buffer);
+		buffer.flip();
+
+		Path path = new File(SNAPSHOT_PATH).toPath();
+		Path temporary = new File(SNAPSHOT_PATH + ".tmp").toPath();
+
+		try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+
+			while (buffer.hasRemaining())
+				channel.write(buffer);
+
+		} catch (IOException e) {
+			System.out.println("Error: Unable to write the library snapshot");
+			e.printStackTrace();
+			return;
+		}
+
+		try {
+			Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			System.out.println("Error: Unable to replace the library snapshot");
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Returns the library directory the snapshot was taken of.
+	 *
+	 * @return The library directory
+	 */
+	public File getRoot() {
+		return root;
+	}
+
+
+	public LibraryIndex getIndex() {
+		return index;
+	}
+
+}
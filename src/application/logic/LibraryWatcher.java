@@ -0,0 +1,435 @@
+package application.logic;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import application.database.TrackCatalog;
+import javafx.application.Platform;
+
+/**
+ * LibraryWatcher. Watches every directory of the music library for files being
+ * added, removed or changed while the application runs.
+ *
+ * Events are collected until the library has been quiet for a moment, so a
+ * copy of hundreds of files becomes a single update. Events for the same path
+ * are merged, the track catalog is brought up to date on the watcher thread
+ * and the merged changes are then handed to the listener on the JavaFX
+ * thread. When the watch service drops events for a directory only that
+ * directory is rescanned.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class LibraryWatcher {
+
+
+	/*
+	 * How long the library must be quiet before changes are applied, in
+	 * milliseconds
+	 */
+	private static final long QUIET_PERIOD = 300;
+
+	/*
+	 * The longest changes are held back during a steady stream of events, in
+	 * milliseconds
+	 */
+	private static final long MAX_DELAY = 2000;
+
+	private static LibraryWatcher current;
+	private static Consumer<Changes> listener;
+
+	private final Path root;
+	private final WatchService service;
+	private final Map<WatchKey, Path> directories = new HashMap<>();
+
+	/*
+	 * Merged events waiting to be applied, by path
+	 */
+	private final Map<Path, Change> pending = new LinkedHashMap<>();
+	private final Set<Path> overflowed = new HashSet<>();
+
+
+	/*
+	 * The kinds of change a path can go through
+	 */
+	private enum Change {
+		CREATED, MODIFIED, DELETED
+	}
+
+
+	/**
+	 * Changes. The merged changes of one quiet period.
+	 */
+	public static class Changes {
+
+
+		private final List<File> created = new ArrayList<>();
+		private final List<File> createdDirectories = new ArrayList<>();
+		private final List<File> modified = new ArrayList<>();
+		private final List<File> deleted = new ArrayList<>();
+		private final List<File> rescanned = new ArrayList<>();
+		private final List<LibraryItem> items = new ArrayList<>();
+
+
+		/**
+		 * Returns the files and directories that were added.
+		 *
+		 * @return The added paths
+		 */
+		public List<File> getCreated() {
+			return Collections.unmodifiableList(created);
+		}
+
+
+		/**
+		 * Returns the directories among the added paths.
+		 *
+		 * @return The added directories
+		 */
+		public List<File> getCreatedDirectories() {
+			return Collections.unmodifiableList(createdDirectories);
+		}
+
+
+		/**
+		 * Returns the files whose contents changed.
+		 *
+		 * @return The changed files
+		 */
+		public List<File> getModified() {
+			return Collections.unmodifiableList(modified);
+		}
+
+
+		/**
+		 * Returns the files and directories that were removed.
+		 *
+		 * @return The removed paths
+		 */
+		public List<File> getDeleted() {
+			return Collections.unmodifiableList(deleted);
+		}
+
+
+		/**
+		 * Returns the directories whose events were dropped and that were
+		 * rescanned instead. Their views should be reloaded.
+		 *
+		 * @return The rescanned directories
+		 */
+		public List<File> getRescanned() {
+			return Collections.unmodifiableList(rescanned);
+		}
+
+
+		/**
+		 * Returns the list rows of the added folders and of the added and
+		 * changed tracks, read after the catalog was brought up to date.
+		 *
+		 * @return The rows of the added and changed paths
+		 */
+		public List<LibraryItem> getItems() {
+			return Collections.unmodifiableList(items);
+		}
+
+
+		private boolean isEmpty() {
+			return created.isEmpty() && modified.isEmpty() && deleted.isEmpty() && rescanned.isEmpty();
+		}
+	}
+
+
+	private LibraryWatcher(Path root) throws IOException {
+		this.root = root;
+		this.service = FileSystems.getDefault().newWatchService();
+	}
+
+
+	/**
+	 * Starts watching a library directory, stopping the watch of the previous
+	 * library.
+	 *
+	 * @param directory The library directory
+	 */
+	public static synchronized void watch(File directory) {
+
+		stop();
+
+		try {
+			LibraryWatcher watcher = new LibraryWatcher(directory.toPath());
+			Thread thread = new Thread(watcher::run, "Library Watcher");
+			thread.setDaemon(true);
+			thread.start();
+			current = watcher;
+
+		} catch (IOException e) {
+			System.out.println("Error: Unable to watch the music library");
+			e.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Stops watching the library.
+	 */
+	public static synchronized void stop() {
+
+		if (current != null) {
+			try {
+				current.service.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+			current = null;
+		}
+	}
+
+
+	/**
+	 * Sets the listener that receives the changes of every quiet period on
+	 * the JavaFX thread.
+	 *
+	 * @param onChange The listener
+	 */
+	public static synchronized void setOnChange(Consumer<Changes> onChange) {
+		listener = onChange;
+	}
+
+
+	/*
+	 * Registers the library and waits for events until the watch service is
+	 * closed
+	 */
+	private void run() {
+
+		register(root);
+
+		try {
+			long firstPending = 0;
+
+			while (true) {
+				WatchKey key = service.poll(QUIET_PERIOD, TimeUnit.MILLISECONDS);
+
+				if (key != null) {
+					if (pending.isEmpty() && overflowed.isEmpty())
+						firstPending = System.currentTimeMillis();
+
+					collect(key);
+				}
+
+				boolean quiet = key == null;
+				boolean overdue = System.currentTimeMillis() - firstPending >= MAX_DELAY;
+
+				if ((quiet || overdue) && !(pending.isEmpty() && overflowed.isEmpty())) {
+					apply();
+					firstPending = System.currentTimeMillis();
+				}
+			}
+
+		} catch (InterruptedException | ClosedWatchServiceException e) {
+			// the watch was stopped
+		}
+	}
+
+
+	/*
+	 * Registers a directory and every directory below it
+	 */
+	private void register(Path start) {
+
+		try {
+			Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+
+
+				@Override
+				public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) {
+
+					try {
+						directories.put(directory.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY),
+								directory);
+					} catch (IOException e) {
+						// the system limit on watches may have been reached,
+						// the directory is left unwatched
+						System.out.println("Error: Unable to watch " + directory);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException e) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+
+	/*
+	 * Merges the events of a key into the pending changes
+	 */
+	private void collect(WatchKey key) {
+
+		Path directory = directories.get(key);
+
+		for (WatchEvent<?> event : key.pollEvents()) {
+
+			if (directory == null)
+				continue;
+
+			if (event.kind() == OVERFLOW) {
+				overflowed.add(directory);
+				continue;
+			}
+
+			Path path = directory.resolve((Path) event.context());
+
+			if (event.kind() == ENTRY_CREATE)
+				merge(path, Change.CREATED);
+			else if (event.kind() == ENTRY_DELETE)
+				merge(path, Change.DELETED);
+			else
+				merge(path, Change.MODIFIED);
+		}
+
+		// the key is no longer valid once its directory is gone
+		if (!key.reset())
+			directories.remove(key);
+	}
+
+
+	/*
+	 * Merges a change with the pending change of the same path. A path added
+	 * and removed again is dropped, a path removed and added again has only
+	 * changed, and a new path stays new however often it is written.
+	 */
+	private void merge(Path path, Change change) {
+
+		Change previous = pending.get(path);
+
+		if (previous == null)
+			pending.put(path, change);
+		else if (previous == Change.CREATED && change == Change.DELETED)
+			pending.remove(path);
+		else if (previous == Change.DELETED && change == Change.CREATED)
+			pending.put(path, Change.MODIFIED);
+		else if (previous != Change.CREATED)
+			pending.put(path, change);
+	}
+
+
+	/*
+	 * Applies the pending changes to the track catalog and hands them to the
+	 * listener
+	 */
+	private void apply() {
+
+		Changes changes = new Changes();
+		Set<File> touched = new HashSet<>();
+
+		for (Map.Entry<Path, Change> entry : pending.entrySet()) {
+
+			Path path = entry.getKey();
+			File file = path.toFile();
+			touched.add(file.getParentFile());
+
+			if (entry.getValue() == Change.DELETED) {
+				changes.deleted.add(file);
+
+			} else if (Files.isDirectory(path)) {
+				// files copied in before the directory was registered raise no
+				// events of their own, so the new directory is rescanned
+				if (entry.getValue() == Change.CREATED) {
+					register(path);
+					overflowed.add(path);
+					changes.created.add(file);
+					changes.createdDirectories.add(file);
+				}
+
+			} else if (MusicPlayer.isAcceptableFileName(file.getName())) {
+				(entry.getValue() == Change.CREATED ? changes.created : changes.modified).add(file);
+			}
+		}
+		pending.clear();
+
+		for (Path directory : removeNested(overflowed)) {
+			changes.rescanned.add(directory.toFile());
+			touched.add(directory.toFile());
+			TrackCatalog.rescan(directory.toFile());
+		}
+		overflowed.clear();
+
+		List<File> changed = new ArrayList<>(changes.created);
+		changed.addAll(changes.modified);
+		changed.removeAll(changes.createdDirectories);
+
+		TrackCatalog.update(changed, changes.deleted);
+		MetaDataCache.invalidate(changes.deleted);
+		AlbumArtService.invalidate(touched);
+		LibraryIndex.rebuild(root.toFile(), false);
+
+		for (File directory : changes.createdDirectories)
+			changes.items.add(LibraryItem.forDirectory(directory));
+
+		changes.items.addAll(LibraryItem.forTracks(changed, false));
+
+		Consumer<Changes> onChange;
+
+		synchronized (LibraryWatcher.class) {
+			onChange = listener;
+		}
+
+		if (onChange != null && !changes.isEmpty())
+			Platform.runLater(() -> onChange.accept(changes));
+	}
+
+
+	/*
+	 * Drops the directories that lie within another directory of the set, as
+	 * rescanning the outer one covers them
+	 */
+	private static List<Path> removeNested(Set<Path> directories) {
+
+		List<Path> outermost = new ArrayList<>();
+
+		for (Path directory : directories) {
+			boolean nested = false;
+
+			for (Path other : directories)
+				nested |= !other.equals(directory) && directory.startsWith(other);
+
+			if (!nested)
+				outermost.add(directory);
+		}
+		return outermost;
+	}
+
+}
@@ -0,0 +1,191 @@
+package application.logic;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import application.database.CatalogEntry;
+import application.database.TrackCatalog;
+import application.utils.MetaDataParser;
+import application.utils.TrackMetadata;
+
+/**
+ * MetaDataCache. A two level cache of track metadata. A bounded in-memory LRU
+ * sits in front of the persisted track catalog, and the audio file is only
+ * parsed when neither holds the track.
+ *
+ * Entries at both levels are only used while the file's size and modification
+ * time are unchanged, so edited files are parsed again.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class MetaDataCache {
+
+
+	/*
+	 * The most tracks held in memory at once
+	 */
+	private static final int MAX_ENTRIES = 5000;
+
+	/*
+	 * Cached entries keyed by file path, least recently used first
+	 */
+	private static final Map<String, CatalogEntry> memory = new LinkedHashMap<String, CatalogEntry>(256, 0.75f,
+			true) {
+
+
+		private static final long serialVersionUID = 1L;
+
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CatalogEntry> eldest) {
+			return size() > MAX_ENTRIES;
+		}
+	};
+
+	private static final AtomicLong memoryHits = new AtomicLong();
+	private static final AtomicLong catalogHits = new AtomicLong();
+	private static final AtomicLong misses = new AtomicLong();
+
+
+	/**
+	 * Returns the metadata of a track, from memory if possible, then from the
+	 * track catalog, and only then by parsing the file. Parsed metadata is
+	 * written to the catalog.
+	 *
+	 * @param file The track whose metadata will be retrieved
+	 * @return The metadata of the track
+	 */
+	public static TrackMetadata get(File file) {
+		return getEntry(file).getMetadata();
+	}
+
+
+	/**
+	 * Returns the cache entry of a track, looked up the same way as
+	 * {@link #get(File)}.
+	 *
+	 * @param file The track whose entry will be retrieved
+	 * @return The entry of the track
+	 */
+	public static CatalogEntry getEntry(File file) {
+
+		long size = file.length();
+		long modified = file.lastModified();
+		CatalogEntry entry = getCurrent(file, size, modified);
+
+		if (entry != null) {
+			memoryHits.incrementAndGet();
+			return entry;
+		}
+
+		entry = TrackCatalog.get(file);
+
+		if (entry != null && entry.isCurrent(size, modified)) {
+			catalogHits.incrementAndGet();
+
+		} else {
+			misses.incrementAndGet();
+			entry = new CatalogEntry(file.getPath(), size, modified, MetaDataParser.getMetaData(file));
+			TrackCatalog.put(entry);
+		}
+
+		synchronized (memory) {
+			memory.put(file.getPath(), entry);
+		}
+		return entry;
+	}
+
+
+	/**
+	 * Returns the metadata of a track only if it is held in memory, without
+	 * reading the catalog or the file.
+	 *
+	 * @param file The track whose metadata will be retrieved
+	 * @return The metadata of the track or null if it is not in memory
+	 */
+	public static TrackMetadata getIfCached(File file) {
+
+		CatalogEntry entry = getCurrent(file, file.length(), file.lastModified());
+		return entry == null ? null : entry.getMetadata();
+	}
+
+
+	/**
+	 * Drops the in-memory entries of tracks that were removed, along with the
+	 * entries of every track below them when they were directories.
+	 *
+	 * @param files The removed files and directories
+	 */
+	public static void invalidate(Collection<File> files) {
+
+		if (files.isEmpty())
+			return;
+
+		synchronized (memory) {
+			for (File file : files) {
+				String directory = file.getPath() + File.separator;
+				memory.keySet().removeIf(path -> path.equals(file.getPath()) || path.startsWith(directory));
+			}
+		}
+	}
+
+
+	/*
+	 * Returns the in-memory entry of a track if it is still current
+	 */
+	private static CatalogEntry getCurrent(File file, long size, long modified) {
+
+		CatalogEntry entry;
+
+		synchronized (memory) {
+			entry = memory.get(file.getPath());
+		}
+		return entry != null && entry.isCurrent(size, modified) ? entry : null;
+	}
+
+
+	/**
+	 * Returns the number of lookups answered from memory.
+	 *
+	 * @return The number of in-memory hits
+	 */
+	public static long getMemoryHits() {
+		return memoryHits.get();
+	}
+
+
+	/**
+	 * Returns the number of lookups answered from the track catalog.
+	 *
+	 * @return The number of catalog hits
+	 */
+	public static long getCatalogHits() {
+		return catalogHits.get();
+	}
+
+
+	/**
+	 * Returns the number of lookups that had to parse the audio file.
+	 *
+	 * @return The number of misses
+	 */
+	public static long getMisses() {
+		return misses.get();
+	}
+
+
+	/**
+	 * Returns the hit and miss counters as a single line for logging.
+	 *
+	 * @return The cache statistics as a string
+	 */
+	public static String getStatistics() {
+		return String.format("metadata cache: %d memory hits, %d catalog hits, %d misses", getMemoryHits(),
+				getCatalogHits(), getMisses());
+	}
+
+}
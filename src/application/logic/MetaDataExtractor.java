@@ -0,0 +1,202 @@
+package application.logic;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import application.database.CatalogEntry;
+import javafx.application.Platform;
+
+/**
+ * MetaDataExtractor. Reads the metadata of many tracks at once on a pool of
+ * worker threads so the JavaFX thread never parses a file.
+ *
+ * Files are sorted by directory and handed out in runs of neighbouring files,
+ * which keeps reads from one folder together on disk. The number of files
+ * open at once is capped separately from the number of threads. Both can be
+ * tuned with the metadata.threads and metadata.openFiles system properties,
+ * for example to limit a library on a spinning disk to a single open file.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class MetaDataExtractor {
+
+
+	/*
+	 * The number of worker threads, one per core by default
+	 */
+	private static final int THREADS = Integer.getInteger("metadata.threads",
+			Runtime.getRuntime().availableProcessors());
+
+	/*
+	 * The most files read at the same time
+	 */
+	private static final int MAX_OPEN_FILES = Integer.getInteger("metadata.openFiles", THREADS);
+
+	/*
+	 * The number of neighbouring files a worker reads in one task
+	 */
+	private static final int RUN_SIZE = 32;
+
+	/*
+	 * The number of results handed to the JavaFX thread at once
+	 */
+	private static final int BATCH_SIZE = 128;
+
+	private static final AtomicInteger threadCount = new AtomicInteger();
+
+	private static final ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, THREADS), runnable -> {
+		Thread thread = new Thread(runnable, "Metadata Extractor " + threadCount.incrementAndGet());
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private static final Semaphore openFiles = new Semaphore(Math.max(1, MAX_OPEN_FILES));
+
+
+	/**
+	 * Reads the metadata of every file through the metadata cache, so results
+	 * are kept in memory and in the track catalog.
+	 *
+	 * @param files The tracks to read
+	 * @param onBatch Receives the results on the JavaFX thread as they arrive,
+	 *            may be null
+	 * @return A future completed with every result once all files are read
+	 */
+	public static CompletableFuture<List<CatalogEntry>> extract(Collection<File> files,
+			Consumer<List<CatalogEntry>> onBatch) {
+		return extract(files, MetaDataCache::getEntry, onBatch);
+	}
+
+
+	/**
+	 * Reads every file with the given reader on the worker threads.
+	 *
+	 * @param files The tracks to read
+	 * @param reader Reads a single track, called on a worker thread
+	 * @param onBatch Receives the results on the JavaFX thread as they arrive,
+	 *            may be null
+	 * @return A future completed with every result once all files are read
+	 */
+	public static CompletableFuture<List<CatalogEntry>> extract(Collection<File> files,
+			Function<File, CatalogEntry> reader, Consumer<List<CatalogEntry>> onBatch) {
+
+		List<File> sorted = new ArrayList<>(files);
+		sorted.sort(Comparator.comparing((File file) -> String.valueOf(file.getParent())).thenComparing(File::getName));
+
+		Batcher batcher = new Batcher(onBatch);
+		List<CompletableFuture<Void>> runs = new ArrayList<>();
+
+		for (int start = 0; start < sorted.size(); start += RUN_SIZE) {
+			List<File> run = sorted.subList(start, Math.min(start + RUN_SIZE, sorted.size()));
+			runs.add(CompletableFuture.runAsync(() -> readRun(run, reader, batcher), workers));
+		}
+
+		return CompletableFuture.allOf(runs.toArray(new CompletableFuture<?>[runs.size()])).thenApply(done -> {
+			batcher.flush();
+			return batcher.getResults();
+		});
+	}
+
+
+	/*
+	 * Reads a run of neighbouring files, holding an open file permit for each
+	 * read
+	 */
+	private static void readRun(List<File> run, Function<File, CatalogEntry> reader, Batcher batcher) {
+
+		for (File file : run) {
+			CatalogEntry entry = null;
+
+			try {
+				openFiles.acquire();
+
+				try {
+					entry = reader.apply(file);
+				} finally {
+					openFiles.release();
+				}
+
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+
+			if (entry != null)
+				batcher.add(entry);
+		}
+	}
+
+
+	/*
+	 * Collects the results of one extraction and hands them to the JavaFX
+	 * thread in batches
+	 */
+	private static class Batcher {
+
+
+		private final Consumer<List<CatalogEntry>> onBatch;
+		private final List<CatalogEntry> results = new ArrayList<>();
+		private List<CatalogEntry> pending = new ArrayList<>();
+
+
+		private Batcher(Consumer<List<CatalogEntry>> onBatch) {
+			this.onBatch = onBatch;
+		}
+
+
+		private void add(CatalogEntry entry) {
+
+			List<CatalogEntry> batch = null;
+
+			synchronized (this) {
+				results.add(entry);
+				pending.add(entry);
+
+				if (pending.size() >= BATCH_SIZE) {
+					batch = pending;
+					pending = new ArrayList<>();
+				}
+			}
+			deliver(batch);
+		}
+
+
+		private void flush() {
+
+			List<CatalogEntry> batch;
+
+			synchronized (this) {
+				batch = pending;
+				pending = new ArrayList<>();
+			}
+			deliver(batch);
+		}
+
+
+		private void deliver(List<CatalogEntry> batch) {
+
+			if (onBatch != null && batch != null && !batch.isEmpty())
+				Platform.runLater(() -> onBatch.accept(Collections.unmodifiableList(batch)));
+		}
+
+
+		private synchronized List<CatalogEntry> getResults() {
+			return results;
+		}
+	}
+
+}
@@ -1,21 +1,34 @@
 package application.logic;
 
 import java.io.File;
-import java.net.MalformedURLException;
-
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 
 import application.database.Database;
-import application.utils.MetaDataParser;
+import application.database.TrackCatalog;
+import application.utils.TrackMetadata;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
+import javafx.scene.control.Alert;
+import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
-import javafx.scene.image.Image;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TextArea;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Window;
 
@@ -34,6 +47,17 @@ public class MusicLibrary {
 	 */
 	public static final String LIBRARY_DIRECTORY = "src/application/database/LibraryDirectory.lib";
 
+	private static File libraryDirectory;
+
+	/*
+	 * Reads the folders added to playlists off the JavaFX thread
+	 */
+	private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Library Loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 
 	/**
 	 * Retrieves the users music library directory path if one has been set
@@ -63,7 +87,7 @@ public class MusicLibrary {
 	 * 
 	 * @param primaryStage The primary stage of the interface
 	 */
-	public static ObservableList<File> showDialogWindow(Window primaryStage) {
+	public static ObservableList<LibraryItem> showDialogWindow(Window primaryStage) {
 
 		DirectoryChooser directoryChooser = new DirectoryChooser();
 		File directory = directoryChooser.showDialog(primaryStage);
@@ -73,27 +97,259 @@ public class MusicLibrary {
 
 
 	/**
-	 * Populates the artist list using the directory to the music library
+	 * Populates the artist list using the directory to the music library. The
+	 * track catalog of the library is rescanned in the background.
 	 * 
 	 * @param file The directory which contains the music library
-	 * @return An observable list of folders containing music files. This list
-	 *         is used to populate the artist list view
+	 * @return An observable list of rows of folders containing music files,
+	 *         filled in the background. This list is used to populate the
+	 *         artist list view
 	 */
-	public static ObservableList<File> populateArtistList(File directory) {
+	public static ObservableList<LibraryItem> populateArtistList(File directory) {
 
 		storeLibraryDirectory(directory.getPath());
+		TrackCatalog.rescanInBackground(directory).thenRun(() -> LibraryIndex.rebuild(directory, true));
+		LibraryWatcher.watch(directory);
+		libraryDirectory = directory;
+
+		ObservableList<LibraryItem> fileList = FXCollections.observableArrayList();
+		DirectoryLoader.load(directory, fileList, true);
+
+		return fileList;
+	}
 
-		File[] files = directory.listFiles();
-		ObservableList<File> fileList = FXCollections.observableArrayList();
 
-		for (int i = 0; i < files.length; i++)
-			if (files[i] != null && files[i].isDirectory())
-				fileList.add(files[i]);
+	/**
+	 * Populates the artist list from a library snapshot without listing the
+	 * library, then checks it against the library in the background. The
+	 * folders holding the snapshot's tracks are shown at once and replaced by
+	 * a fresh listing of the directory if the two differ. The track catalog is
+	 * rescanned and the index rebuilt as for a newly loaded library.
+	 * 
+	 * @param snapshot The library snapshot saved last
+	 * @return An observable list of rows of the folders of the library, used
+	 *         to populate the artist list view
+	 */
+	public static ObservableList<LibraryItem> restoreArtistList(LibrarySnapshot snapshot) {
+
+		File directory = snapshot.getRoot();
+		LibraryIndex.restore(snapshot.getIndex());
+		TrackCatalog.rescanInBackground(directory).thenRun(() -> LibraryIndex.rebuild(directory, true));
+		LibraryWatcher.watch(directory);
+		libraryDirectory = directory;
+
+		ObservableList<LibraryItem> fileList = FXCollections
+				.observableArrayList(getTopFolders(snapshot.getIndex(), directory));
+		ObservableList<LibraryItem> listed = FXCollections.observableArrayList();
+
+		DirectoryLoader.load(directory, listed, true).thenRun(() -> {
+			if (!getFiles(listed).equals(getFiles(fileList)))
+				fileList.setAll(listed);
+		});
 
 		return fileList;
 	}
 
 
+	/*
+	 * Returns the rows of the folders directly within the library directory
+	 * that hold indexed tracks, ordered by name
+	 */
+	private static List<LibraryItem> getTopFolders(LibraryIndex index, File directory) {
+
+		String prefix = directory.getPath() + File.separator;
+		Set<String> folders = new HashSet<>();
+
+		for (int i = 0; i < index.getDirectoryCount(); i++) {
+
+			String folder = index.getDirectoryName(i);
+
+			if (folder.startsWith(prefix)) {
+				int end = folder.indexOf(File.separatorChar, prefix.length());
+				folders.add(end < 0 ? folder : folder.substring(0, end));
+			}
+		}
+
+		List<LibraryItem> items = new ArrayList<>();
+
+		for (String folder : folders)
+			items.add(LibraryItem.forDirectory(new File(folder)));
+
+		items.sort(Comparator.comparing(LibraryItem::getText, String.CASE_INSENSITIVE_ORDER));
+		return items;
+	}
+
+
+	private static Set<File> getFiles(List<LibraryItem> items) {
+
+		Set<File> files = new HashSet<>();
+
+		for (LibraryItem item : items)
+			files.add(item.getFile());
+
+		return files;
+	}
+
+
+	/**
+	 * Returns the library directory the artist list was last populated from
+	 * 
+	 * @return The library directory or null if no library has been loaded
+	 */
+	public static File getLibraryDirectory() {
+		return libraryDirectory;
+	}
+
+
+	/**
+	 * Searches the library for tracks with the same audio in the background.
+	 *
+	 * @return A future completed with the groups of duplicate tracks, the
+	 *         groups wasting the most space first, or empty if no library has
+	 *         been loaded
+	 */
+	public static CompletableFuture<List<List<File>>> findDuplicates() {
+
+		if (libraryDirectory == null)
+			return CompletableFuture.completedFuture(new ArrayList<>());
+
+		return DuplicateFinder.find(libraryDirectory);
+	}
+
+
+	/**
+	 * Sets up the right click context menu for the artist list view. The user
+	 * can search the whole library for duplicate tracks, and the groups found
+	 * are shown in a dialog once the search has finished.
+	 *
+	 * @param list The artist list view where this context menu will be set
+	 */
+	public static void setArtistContextMenu(ListView<LibraryItem> list) {
+
+		MenuItem findDuplicates = new MenuItem();
+		findDuplicates.setText("Find duplicate tracks");
+
+		findDuplicates.setOnAction(new EventHandler<ActionEvent>() {
+
+
+			@Override
+			public void handle(ActionEvent e) {
+
+				// a library search can take a while, so only one runs at once
+				findDuplicates.setDisable(true);
+
+				findDuplicates().whenComplete((groups, error) -> Platform.runLater(() -> {
+					findDuplicates.setDisable(false);
+
+					if (error != null) {
+						System.out.println("Error: Unable to search the library for duplicates");
+						error.printStackTrace();
+					} else {
+						showDuplicates(groups, list.getScene().getWindow());
+					}
+				}));
+			}
+		});
+
+		list.setContextMenu(new ContextMenu(findDuplicates));
+	}
+
+
+	/*
+	 * Shows the groups of duplicate tracks in a dialog, each group under the
+	 * size of its files
+	 */
+	private static void showDuplicates(List<List<File>> groups, Window owner) {
+
+		Alert dialog = new Alert(AlertType.INFORMATION);
+		dialog.initOwner(owner);
+		dialog.setTitle("Music Center");
+
+		if (groups.isEmpty()) {
+			dialog.setHeaderText("No duplicate tracks found");
+			dialog.showAndWait();
+			return;
+		}
+
+		StringBuilder report = new StringBuilder();
+
+		for (List<File> group : groups) {
+			report.append(FileUtils.byteCountToDisplaySize(group.get(0).length())).append('\n');
+
+			for (File file : group)
+				report.append("    ").append(file.getPath()).append('\n');
+
+			report.append('\n');
+		}
+
+		TextArea text = new TextArea(report.toString());
+		text.setEditable(false);
+		text.setWrapText(false);
+
+		dialog.setHeaderText(groups.size() + (groups.size() == 1 ? " group" : " groups") + " of duplicate tracks found");
+		dialog.getDialogPane().setContent(text);
+		dialog.setResizable(true);
+		dialog.showAndWait();
+	}
+
+
+	/**
+	 * Applies changes seen by the library watcher to the items listed for a
+	 * directory. New entries directly within the directory are added, changed
+	 * tracks replace their rows, removed entries are dropped, and the items are
+	 * listed again when the directory was rescanned.
+	 * 
+	 * @param items The items shown for the directory
+	 * @param directory The directory the items were listed from
+	 * @param changes The changes seen by the library watcher
+	 * @param directoriesOnly True if only folders are listed, as in the artist
+	 *        list
+	 */
+	public static void applyLibraryChanges(ObservableList<LibraryItem> items, File directory,
+			LibraryWatcher.Changes changes, boolean directoriesOnly) {
+
+		if (items == null || directory == null)
+			return;
+
+		for (File rescanned : changes.getRescanned()) {
+
+			if (directory.toPath().startsWith(rescanned.toPath())) {
+				DirectoryLoader.load(directory, items, directoriesOnly);
+				return;
+			}
+		}
+
+		Set<File> deleted = new HashSet<>(changes.getDeleted());
+		items.removeIf(item -> deleted.contains(item.getFile()));
+
+		for (LibraryItem item : changes.getItems()) {
+
+			if (!directory.equals(item.getFile().getParentFile()) || (directoriesOnly && !item.isDirectory()))
+				continue;
+
+			int index = indexOf(items, item.getFile());
+
+			if (index < 0)
+				items.add(item);
+			else
+				items.set(index, item);
+		}
+	}
+
+
+	/*
+	 * Returns the index of the row of a file, or -1 if it is not listed
+	 */
+	private static int indexOf(List<LibraryItem> items, File file) {
+
+		for (int i = 0; i < items.size(); i++) {
+			if (items.get(i).getFile().equals(file))
+				return i;
+		}
+		return -1;
+	}
+
+
 	/**
 	 * Populates an observable list with files from a directory file.
 	 * 
@@ -120,49 +376,51 @@ public class MusicLibrary {
 
 
 	/**
-	 * Sets file names from File and re-populates a ListView<File> with the
-	 * formatted names.
+	 * Sets the cells of a ListView<LibraryItem> to display the text of their
+	 * rows. The text was worked out when the list was filled, so drawing a
+	 * cell never reads the disk.
 	 * 
-	 * @param list The list to be re-populated with File names
+	 * @param list The list whose cells display their rows
 	 */
-	public static void setFileNames(ListView<File> list, boolean isPlaylist) {
+	public static void setFileNames(ListView<LibraryItem> list) {
 
-		list.setCellFactory(param -> new ListCell<File>() {
+		list.setCellFactory(param -> new ListCell<LibraryItem>() {
 
 
 			@Override
-			protected void updateItem(File file, boolean empty) {
-				super.updateItem(file, empty);
-
-				if (file != null) {
-
-					if (file.isDirectory()) {
-						setText(file.getName());
-						setItem(file);
+			protected void updateItem(LibraryItem item, boolean empty) {
+				super.updateItem(item, empty);
 
-					} else if (file.isFile() && isPlaylist == false) {
-						setText(MetaDataParser.getTitle(file));
-						setItem(file);
-
-					} else if (isPlaylist) {
-						setText(MetaDataParser.getArtist(file) + " - " + MetaDataParser.getTitle(file));
-						setItem(file);
-					}
-				}
+				setText(empty || item == null ? null : item.getText());
 			}
 		});
 	}
 
 
+	/**
+	 * Returns the metadata of a track through the metadata cache, parsing the
+	 * file only when it is not cached
+	 * 
+	 * @param file The track whose metadata will be retrieved
+	 * @return The metadata of the track
+	 */
+	public static TrackMetadata getMetaData(File file) {
+		return MetaDataCache.get(file);
+	}
+
+
 	/**
 	 * Sets the right click context menu for the tracklist list view. When the
-	 * user right clicks on a track an option to add a track to the current
-	 * playlist is presented
+	 * user right clicks on a selection an option to add the selected tracks to
+	 * the current playlist is presented. Selected folders add every track
+	 * inside them.
 	 * 
 	 * @param list The listview where the context menu will be set
-	 * @param playlist The playlist where the selected track will be added
+	 * @param playlist The playlist where the selected tracks will be added
 	 */
-	public static void setContextMenu(ListView<File> list, ListView<File> playlist) {
+	public static void setContextMenu(ListView<LibraryItem> list, ListView<LibraryItem> playlist) {
+
+		list.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
 		MenuItem addPlaylist = new MenuItem();
 		addPlaylist.setText("Add to playlist");
@@ -172,8 +430,19 @@ public class MusicLibrary {
 
 			@Override
 			public void handle(ActionEvent e) {
-				MusicPlaylist.addToPlaylist(list.getSelectionModel().getSelectedItem());
-				playlist.setItems(MusicPlaylist.populatePlaylistView());
+				List<LibraryItem> selected = new ArrayList<>(list.getSelectionModel().getSelectedItems());
+
+				// folders are listed in the background
+				CompletableFuture<Void> write = CompletableFuture.supplyAsync(() -> {
+					List<File> tracks = new ArrayList<>();
+
+					for (LibraryItem item : selected)
+						collectTracks(item.getFile(), tracks);
+
+					return tracks;
+				}, loader).thenCompose(MusicPlaylist::addAllToPlaylist);
+
+				MusicPlaylist.refreshPlaylistView(write, playlist);
 			}
 
 		});
@@ -182,31 +451,22 @@ public class MusicLibrary {
 	}
 
 
-	/**
-	 * Returns a jpeg File from a directory containing multiple file types.
-	 * 
-	 * @param file The directory containing a jpeg used for album art
-	 * @return An Image object containing album art
+	/*
+	 * Adds a track to the list, or every track within it when the file is a
+	 * folder
 	 */
-	public static Image setAlbumArt(File file) {
+	private static void collectTracks(File file, List<File> tracks) {
 
-		String path = "images/Music_Library.png";
-		File[] fileList = file.listFiles();
+		if (file == null)
+			return;
 
-		for (int i = 0; i < fileList.length; i++) {
+		if (file.isDirectory()) {
+			for (File child : populateTrackList(file))
+				collectTracks(child, tracks);
 
-			if (isJPEG(fileList[i].getPath())) {
-
-				try {
-					path = fileList[i].toURI().toURL().toString();
-				} catch (MalformedURLException e) {
-					System.out.println("Error: Unable to load album art");
-					e.printStackTrace();
-				}
-			}
+		} else {
+			tracks.add(file);
 		}
-
-		return new Image(path);
 	}
 
 
@@ -177,8 +177,22 @@ public class MusicPlayer {
 		if (file.isDirectory())
 			return true;
 
+		return isAcceptableFileName(file.getPath());
+	}
+
+
+	/**
+	 * Checks the file type of a file name by its extension alone, without
+	 * touching the file system. Used where the caller already knows the file
+	 * is a regular file.
+	 * 
+	 * @param fileName The name or path of the file to be checked
+	 * @return True if the extension is of an acceptable file type
+	 */
+	public static boolean isAcceptableFileName(String fileName) {
+
 		boolean acceptable = false;
-		String ext = FilenameUtils.getExtension(file.getPath());
+		String ext = FilenameUtils.getExtension(fileName);
 
 		switch (ext) {
 		case "mp3":
@@ -1,19 +1,27 @@
 package application.logic;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import application.database.Database;
+import javafx.application.Platform;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
-import javafx.scene.control.ComboBox;
+import javafx.scene.Node;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.ListCell;
 import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.TextInputDialog;
+import javafx.scene.input.ClipboardContent;
+import javafx.scene.input.TransferMode;
 
 /**
  * MusicPlaylist. This is where custom user playlists are created and stored.
@@ -35,6 +43,21 @@ public class MusicPlaylist {
 	 */
 	private static String currentPlaylist;
 
+	/*
+	 * The tracks shown in the playlist view. Replaced every time the playlist
+	 * view is populated.
+	 */
+	private static volatile PagedPlaylist currentView = new PagedPlaylist(null);
+
+	/*
+	 * Reads the playlist shown in the playlist view off the JavaFX thread
+	 */
+	private static final ExecutorService viewLoader = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Playlist View Loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
 
 	/**
 	 * Retrieves the last playlist used from the application database if one has
@@ -90,7 +113,6 @@ public class MusicPlaylist {
 	 */
 	private static void storePlaylist(String name) {
 		Database.createPlaylist(name);
-
 	}
 
 
@@ -98,24 +120,68 @@ public class MusicPlaylist {
 	 * Adds a file path to the current playlist
 	 * 
 	 * @param file The track to be added be added to the playlist
+	 * @return A future completed once the track has been stored
 	 */
-	public static void addToPlaylist(File file) {
+	public static CompletableFuture<Void> addToPlaylist(File file) {
 		if (file != null) {
-			Database.addToPlaylist(currentPlaylist, file.getPath());
+			return Database.addToPlaylist(currentPlaylist, file.getPath());
 		}
+		return CompletableFuture.completedFuture(null);
 	}
 
 
 	/**
-	 * Removes the specified track from the current playlist. This feature is
-	 * access through the right click context menu
+	 * Adds many tracks to the current playlist in a single transaction. Used
+	 * when several tracks or whole folders are added at once.
 	 * 
-	 * @param file The track to be removed
+	 * @param files The tracks to be added to the playlist, in order
+	 * @return A future completed once the tracks have been stored
 	 */
-	public static void removeTrackFromPlaylist(File file) {
-		if (file != null) {
-			Database.deleteFromPlaylist(currentPlaylist, file.getPath());
+	public static CompletableFuture<Void> addAllToPlaylist(List<File> files) {
+
+		List<String> paths = new ArrayList<>(files.size());
+
+		for (File file : files) {
+			if (file != null)
+				paths.add(file.getPath());
 		}
+
+		return Database.addAllToPlaylist(currentPlaylist, paths);
+	}
+
+
+	/**
+	 * Removes the track at the specified index of the playlist view from the
+	 * current playlist. This feature is access through the right click context
+	 * menu
+	 * 
+	 * @param index The index of the track to be removed in the playlist view
+	 * @return A future completed once the track has been removed
+	 */
+	public static CompletableFuture<Void> removeTrackFromPlaylist(int index) {
+		if (index >= 0 && index < currentView.size()) {
+			return Database.deleteFromPlaylist(currentPlaylist, index);
+		}
+		return CompletableFuture.completedFuture(null);
+	}
+
+
+	/**
+	 * Moves a track of the current playlist to a new index in the playlist
+	 * view. Only the moved track is rewritten in the database, and the indices
+	 * are resolved to position keys on the writer thread.
+	 * 
+	 * @param from The index of the track to be moved
+	 * @param to The index the track should end up at
+	 * @return A future completed once the move has been stored
+	 */
+	public static CompletableFuture<Void> moveTrack(int from, int to) {
+		int size = currentView.size();
+
+		if (from == to || from < 0 || to < 0 || from >= size || to >= size)
+			return CompletableFuture.completedFuture(null);
+
+		return Database.moveTrack(currentPlaylist, from, to).thenApply(position -> null);
 	}
 
 
@@ -139,63 +205,35 @@ public class MusicPlaylist {
 
 
 	/**
-	 * Populates the playlist track view with all the tracks in the currently
-	 * selected playlist.
+	 * Populates the playlist track view with the tracks in the currently
+	 * selected playlist. Tracks are loaded page by page as the view scrolls.
+	 * Reads the size of the playlist from the database, so it is called off
+	 * the JavaFX thread through refreshPlaylistView.
 	 * 
-	 * @return The tracks in the currently selected playlist as an
-	 *         ObservableList<File>
+	 * @return The rows of the tracks in the currently selected playlist as an
+	 *         ObservableList<LibraryItem>
 	 */
-	public static ObservableList<File> populatePlaylistView() {
-
-		ObservableList<File> playlist = FXCollections.observableArrayList();
-		String[] tracks = Database.retrievePlaylist(currentPlaylist);
-
-		for (String track : tracks) {
-			playlist.add(new File(track));
-		}
+	public static ObservableList<LibraryItem> populatePlaylistView() {
 
+		PagedPlaylist playlist = new PagedPlaylist(currentPlaylist);
+		currentView = playlist;
 		return playlist;
 	}
 
 
 	/**
-	 * Sets file names from File and re-populates a ComboBox<File> with the
-	 * formatted names.
+	 * Re-populates the playlist view once a pending write has been stored. The
+	 * playlist is always read off the JavaFX thread, even when the write has
+	 * already completed, and the view is updated on it.
 	 * 
-	 * @param list The ComboBox list view to be re-populated with File names
+	 * @param write The pending playlist write, or a completed future to show
+	 *            the current playlist
+	 * @param playlist The list view displaying the current playlist
 	 */
-	public static void setFileNames(ComboBox<File> list) {
+	public static void refreshPlaylistView(CompletableFuture<Void> write, ListView<LibraryItem> playlist) {
 
-		list.setCellFactory(param -> new ListCell<File>() {
-
-
-			@Override
-			protected void updateItem(File file, boolean empty) {
-				super.updateItem(file, empty);
-
-				if (file != null) {
-					String name = file.getName().replace(".ply", "");
-					setText(name);
-					setItem(file);
-				}
-			}
-		});
-
-		ListCell<File> cell = new ListCell<File>() {
-
-
-			protected void updateItem(File file, boolean empty) {
-				super.updateItem(file, empty);
-
-				if (file != null) {
-					String name = file.getName().replace(".ply", "");
-					setText(name);
-					setItem(file);
-				}
-			}
-		};
-
-		list.setButtonCell(cell);
+		write.handleAsync((done, error) -> populatePlaylistView(), viewLoader)
+				.thenAccept(tracks -> Platform.runLater(() -> playlist.setItems(tracks)));
 	}
 
 
@@ -218,7 +256,7 @@ public class MusicPlaylist {
 	 * 
 	 * @param playlist The listview where this context menu will be set
 	 */
-	public static void setContextMenu(ListView<File> playlist) {
+	public static void setContextMenu(ListView<LibraryItem> playlist) {
 
 		MenuItem addPlaylist = new MenuItem();
 		addPlaylist.setText("Remove from playlist");
@@ -228,9 +266,7 @@ public class MusicPlaylist {
 
 			@Override
 			public void handle(ActionEvent e) {
-				removeTrackFromPlaylist(playlist.getSelectionModel().getSelectedItem());
-				playlist.setItems(null);
-				playlist.setItems(populatePlaylistView());
+				refreshPlaylistView(removeTrackFromPlaylist(playlist.getSelectionModel().getSelectedIndex()), playlist);
 			}
 		});
 
@@ -238,4 +274,49 @@ public class MusicPlaylist {
 
 	}
 
+
+	/**
+	 * Lets the user reorder the playlist view by dragging a track onto another
+	 * track. The dragged track takes the index of the track it is dropped on,
+	 * or the last index when dropped below the last track.
+	 * 
+	 * @param playlist The listview displaying the current playlist
+	 */
+	public static void setDragAndDrop(ListView<LibraryItem> playlist) {
+
+		playlist.setOnDragDetected(e -> {
+			int index = playlist.getSelectionModel().getSelectedIndex();
+
+			if (index >= 0) {
+				ClipboardContent content = new ClipboardContent();
+				content.putString(String.valueOf(index));
+				playlist.startDragAndDrop(TransferMode.MOVE).setContent(content);
+				e.consume();
+			}
+		});
+
+		playlist.setOnDragOver(e -> {
+			if (e.getGestureSource() == playlist && e.getDragboard().hasString())
+				e.acceptTransferModes(TransferMode.MOVE);
+
+			e.consume();
+		});
+
+		playlist.setOnDragDropped(e -> {
+			int from = Integer.parseInt(e.getDragboard().getString());
+			int to = playlist.getItems().size() - 1;
+			Node node = e.getPickResult().getIntersectedNode();
+
+			while (node != null && node != playlist && !(node instanceof ListCell))
+				node = node.getParent();
+
+			if (node instanceof ListCell && !((ListCell<?>) node).isEmpty())
+				to = ((ListCell<?>) node).getIndex();
+
+			refreshPlaylistView(moveTrack(from, to), playlist);
+			e.setDropCompleted(true);
+			e.consume();
+		});
+	}
+
 }
@@ -0,0 +1,251 @@
+package application.logic;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import application.database.Database;
+import application.database.PlaylistTrack;
+import javafx.application.Platform;
+import javafx.collections.ObservableListBase;
+
+/**
+ * PagedPlaylist. A read only list of the rows of the tracks in a playlist that
+ * loads its tracks from the database one page at a time as the list view asks
+ * for them. The rows of a page are made, tags and all, when the page loads.
+ *
+ * Pages are only ever loaded in the background. A row whose page is not loaded
+ * yet is a blank placeholder, and once the page arrives the list reports its
+ * rows as replaced so the list view draws them again. Reading a row therefore
+ * never waits on the database, and scrolling stays smooth.
+ *
+ * Only a few pages are held at once, so memory use depends on the visible part
+ * of the list rather than the length of the playlist. Pages are found by the
+ * position key of the track before them where it is known, and the page after
+ * each shown page is fetched ahead of time.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class PagedPlaylist extends ObservableListBase<LibraryItem> {
+
+
+	/*
+	 * The number of tracks loaded in a single query
+	 */
+	private static final int PAGE_SIZE = 200;
+
+	/*
+	 * The most pages kept in memory at once
+	 */
+	private static final int MAX_PAGES = 8;
+
+	private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "Playlist Loader");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	private final String playlistName;
+	private final int size;
+
+	/*
+	 * Loaded pages by page number, least recently used first
+	 */
+	private final Map<Integer, Page> pages = new LinkedHashMap<Integer, Page>(MAX_PAGES, 0.75f, true) {
+
+
+		private static final long serialVersionUID = 1L;
+
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Integer, Page> eldest) {
+			return size() > MAX_PAGES;
+		}
+	};
+
+	/*
+	 * The position key of the last track before a page, by page number. Known
+	 * for every page that follows a page loaded so far.
+	 */
+	private final Map<Integer, Long> anchors = new HashMap<>();
+
+	/*
+	 * Page numbers currently being loaded in the background
+	 */
+	private final Set<Integer> loading = new HashSet<>();
+
+	/*
+	 * Page numbers whose rows were handed out as placeholders, and which must
+	 * be reported as changed once loaded. Only used on the JavaFX thread.
+	 */
+	private final Set<Integer> placeholders = new HashSet<>();
+
+
+	/**
+	 * Constructor. Only the number of tracks is read, tracks are loaded as
+	 * they are displayed. Reads from the database, so it is called off the
+	 * JavaFX thread.
+	 *
+	 * @param playlistName The name of the playlist to display
+	 */
+	public PagedPlaylist(String playlistName) {
+		this.playlistName = playlistName;
+		this.size = playlistName == null ? 0 : Database.getRSSize(playlistName);
+		anchors.put(0, 0L);
+	}
+
+
+	/**
+	 * Returns the row at an index without waiting. A row whose page is not
+	 * loaded yet is returned as a placeholder and its page is loaded in the
+	 * background. Called on the JavaFX thread.
+	 */
+	@Override
+	public LibraryItem get(int index) {
+
+		checkIndex(index);
+
+		int number = index / PAGE_SIZE;
+		Page page = getLoadedPage(number);
+
+		if (page == null) {
+			placeholders.add(number);
+			load(number);
+			return LibraryItem.forPendingTrack();
+		}
+
+		load(number + 1);
+
+		// the playlist may have shrunk since its size was read
+		int offset = index % PAGE_SIZE;
+		return offset < page.items.length ? page.items[offset] : LibraryItem.forPendingTrack();
+	}
+
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+
+	private void checkIndex(int index) {
+
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+	}
+
+
+	private synchronized Page getLoadedPage(int number) {
+		return pages.get(number);
+	}
+
+
+	/*
+	 * Loads a page in the background if it exists and is neither loaded nor
+	 * loading. The page is stored on the JavaFX thread, and its rows are
+	 * reported as replaced if placeholders were shown for them.
+	 */
+	private synchronized void load(int number) {
+
+		if (number * PAGE_SIZE >= size || pages.containsKey(number) || !loading.add(number))
+			return;
+
+		loader.execute(() -> {
+			Page page = loadPage(number);
+
+			Platform.runLater(() -> {
+				addPage(number, page);
+
+				synchronized (this) {
+					loading.remove(number);
+				}
+
+				if (placeholders.remove(number))
+					fireReplaced(number);
+			});
+		});
+	}
+
+
+	/*
+	 * Reports the rows of a page as replaced so the list view draws them again
+	 */
+	private void fireReplaced(int number) {
+
+		int from = number * PAGE_SIZE;
+		int to = Math.min(size, from + PAGE_SIZE);
+
+		beginChange();
+
+		for (int index = from; index < to; index++)
+			nextSet(index, LibraryItem.forPendingTrack());
+
+		endChange();
+	}
+
+
+	/*
+	 * Reads a page from the database, seeking by position key when the key
+	 * before the page is known
+	 */
+	private Page loadPage(int number) {
+
+		Long anchor;
+
+		synchronized (this) {
+			anchor = anchors.get(number);
+		}
+
+		List<PlaylistTrack> tracks = anchor != null
+				? Database.retrievePlaylistPage(playlistName, anchor, PAGE_SIZE)
+				: Database.retrievePlaylistPageAt(playlistName, number * PAGE_SIZE, PAGE_SIZE);
+
+		return new Page(tracks);
+	}
+
+
+	/*
+	 * Stores a loaded page and remembers the anchor of the page after it
+	 */
+	private synchronized void addPage(int number, Page page) {
+
+		pages.put(number, page);
+
+		if (page.positions.length > 0)
+			anchors.put(number + 1, page.positions[page.positions.length - 1]);
+	}
+
+
+	/*
+	 * One page of track rows with their position keys
+	 */
+	private static class Page {
+
+
+		private final long[] positions;
+		private final LibraryItem[] items;
+
+
+		private Page(List<PlaylistTrack> tracks) {
+			positions = new long[tracks.size()];
+			List<File> files = new ArrayList<>(tracks.size());
+
+			for (int i = 0; i < positions.length; i++) {
+				positions[i] = tracks.get(i).getPosition();
+				files.add(new File(tracks.get(i).getPath()));
+			}
+
+			List<LibraryItem> rows = LibraryItem.forTracks(files, true);
+			items = rows.toArray(new LibraryItem[rows.size()]);
+		}
+	}
+
+}
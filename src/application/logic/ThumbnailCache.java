@@ -0,0 +1,232 @@
+package application.logic;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+import application.utils.MetaDataParser;
+
+/**
+ * ThumbnailCache. An on-disk cache of album art thumbnails named by the hash of
+ * the image they were made from, so every track of an album with the same
+ * embedded cover shares one set of thumbnails.
+ *
+ * An image is decoded once, subsampled while decoding, and scaled to every
+ * thumbnail size. Later lookups only read the small thumbnail. Embedded art
+ * is read straight from where the tag reader found it, so the tags of a track
+ * are not walked again.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class ThumbnailCache {
+
+
+	/**
+	 * The edge length of the thumbnail shown in the album art view
+	 */
+	public static final int DISPLAY_SIZE = 150;
+
+	/**
+	 * The edge lengths of the thumbnails made from every image
+	 */
+	public static final int[] THUMBNAIL_SIZES = { 64, DISPLAY_SIZE };
+
+	private static final String CACHE_PATH = MusicPlaylist.PLAYLIST_PATH + "thumbnails/";
+
+	/*
+	 * The most source files whose image hash is remembered
+	 */
+	private static final int MAX_HASHES = 2048;
+
+	/*
+	 * The hash of the image found in a source file, by path, size and
+	 * modification time of the file, least recently used first
+	 */
+	private static final Map<String, String> hashes = Collections
+			.synchronizedMap(new LinkedHashMap<String, String>(256, 0.75f, true) {
+
+
+				private static final long serialVersionUID = 1L;
+
+
+				@Override
+				protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+					return size() > MAX_HASHES;
+				}
+			});
+
+
+	/**
+	 * Returns a thumbnail of the cover art of a file, making it if it is not
+	 * cached. The file may be an image or a track with embedded art.
+	 *
+	 * @param source An image file or a track
+	 * @param size One of the thumbnail sizes
+	 * @return The thumbnail file or null if the source has no usable image
+	 */
+	public static File getThumbnail(File source, int size) {
+
+		String id = source.getPath() + ':' + source.length() + ':' + source.lastModified();
+		String hash = hashes.get(id);
+
+		if (hash != null && getFile(hash, size).isFile())
+			return getFile(hash, size);
+
+		byte[] image = readImage(source);
+
+		if (image == null)
+			return null;
+
+		hash = hash(image);
+
+		if (!getFile(hash, size).isFile() && !createThumbnails(image, hash))
+			return null;
+
+		hashes.put(id, hash);
+		return getFile(hash, size);
+	}
+
+
+	/*
+	 * Reads an image file, or the embedded art of a track at the location
+	 * noted when its tags were read
+	 */
+	private static byte[] readImage(File source) {
+
+		if (!MusicPlayer.isAcceptableFileName(source.getName())) {
+			try {
+				return Files.readAllBytes(source.toPath());
+			} catch (IOException e) {
+				e.printStackTrace();
+				return null;
+			}
+		}
+		return MetaDataParser.getAlbumArt(source, MetaDataCache.get(source));
+	}
+
+
+	/*
+	 * Decodes an image once and writes a thumbnail of every size. Returns
+	 * false when the image could not be decoded.
+	 */
+	private static boolean createThumbnails(byte[] image, String hash) {
+
+		try (ImageInputStream input = ImageIO.createImageInputStream(new ByteArrayInputStream(image))) {
+
+			Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+
+			if (!readers.hasNext())
+				return false;
+
+			ImageReader reader = readers.next();
+			BufferedImage decoded;
+
+			try {
+				reader.setInput(input);
+
+				// skips pixels while decoding, keeping at least the largest
+				// thumbnail size
+				int largest = THUMBNAIL_SIZES[THUMBNAIL_SIZES.length - 1];
+				int shortest = Math.min(reader.getWidth(0), reader.getHeight(0));
+				int subsampling = Math.max(1, shortest / largest);
+
+				ImageReadParam param = reader.getDefaultReadParam();
+				param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+				decoded = reader.read(0, param);
+
+			} finally {
+				reader.dispose();
+			}
+
+			Files.createDirectories(new File(CACHE_PATH).toPath());
+
+			for (int size : THUMBNAIL_SIZES)
+				write(scale(decoded, size), getFile(hash, size));
+
+			return true;
+
+		} catch (IOException | RuntimeException e) {
+			System.out.println("Error: Unable to create album art thumbnail");
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+
+	/*
+	 * Scales an image so its longer edge is the given size
+	 */
+	private static BufferedImage scale(BufferedImage image, int size) {
+
+		double ratio = Math.min(1.0, (double) size / Math.max(image.getWidth(), image.getHeight()));
+		int width = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+		int height = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+
+		BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+		Graphics2D graphics = scaled.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+		graphics.drawImage(image, 0, 0, width, height, null);
+		graphics.dispose();
+
+		return scaled;
+	}
+
+
+	/*
+	 * Writes a thumbnail through a temporary file so a partly written
+	 * thumbnail is never read
+	 */
+	private static void write(BufferedImage thumbnail, File file) throws IOException {
+
+		File temporary = File.createTempFile("thumbnail", ".tmp", file.getParentFile());
+
+		try {
+			ImageIO.write(thumbnail, "jpg", temporary);
+			Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			temporary.delete();
+		}
+	}
+
+
+	private static File getFile(String hash, int size) {
+		return new File(CACHE_PATH + hash + "-" + size + ".jpg");
+	}
+
+
+	/*
+	 * The SHA-1 hash of an image as hex
+	 */
+	private static String hash(byte[] image) {
+
+		try {
+			StringBuilder hex = new StringBuilder();
+
+			for (byte b : MessageDigest.getInstance("SHA-1").digest(image))
+				hex.append(String.format("%02x", b));
+
+			return hex.toString();
+
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
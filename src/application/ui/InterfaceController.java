@@ -3,13 +3,22 @@ package application.ui;
 import java.io.File;
 import java.net.URL;
 import java.util.ResourceBundle;
-
+import java.util.concurrent.CompletableFuture;
+
+import application.logic.AlbumArtService;
+import application.logic.DirectoryLoader;
+import application.logic.LibraryItem;
+import application.logic.LibrarySearch;
+import application.logic.LibrarySnapshot;
+import application.logic.LibraryWatcher;
 import application.logic.MusicLibrary;
 import application.logic.MusicPlayer;
 import application.logic.MusicPlaylist;
-import application.utils.MetaDataParser;
+import application.utils.TrackMetadata;
 import javafx.beans.value.ChangeListener;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
 import javafx.event.ActionEvent;
 import javafx.event.EventHandler;
 import javafx.fxml.FXML;
@@ -20,6 +29,7 @@ import javafx.scene.control.Label;
 import javafx.scene.control.ListView;
 import javafx.scene.control.ProgressBar;
 import javafx.scene.control.Slider;
+import javafx.scene.control.TextField;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
@@ -46,11 +56,11 @@ public class InterfaceController implements Initializable {
 	@FXML
 	private ComboBox<String> playlists;
 	@FXML
-	private ListView<File> artistList;
+	private ListView<LibraryItem> artistList;
 	@FXML
-	private ListView<File> trackList;
+	private ListView<LibraryItem> trackList;
 	@FXML
-	private ListView<File> playlistView;
+	private ListView<LibraryItem> playlistView;
 	@FXML
 	private ImageView albumArt;
 	@FXML
@@ -63,6 +73,8 @@ public class InterfaceController implements Initializable {
 	private Label artistLabel;
 	@FXML
 	private Label trackLabel;
+	@FXML
+	private TextField searchField;
 
 	/*
 	 * The currently selected media file. This file has functions for playing
@@ -71,6 +83,21 @@ public class InterfaceController implements Initializable {
 	 */
 	private MusicPlayer currentMedia;
 
+	/*
+	 * The directory whose contents the track list was last populated with, and
+	 * the items listed for it. The same items are reused for every directory so
+	 * that a new listing cancels the one before it. Kept up to date by the
+	 * library watcher.
+	 */
+	private File trackDirectory;
+	private final ObservableList<LibraryItem> trackItems = FXCollections.observableArrayList();
+
+	/*
+	 * The folders of the library listed in the artist list. Kept up to date by
+	 * the library watcher while a search shows part of them.
+	 */
+	private ObservableList<LibraryItem> artistItems;
+
 
 	/**
 	 * Initializes the UserInterface components
@@ -95,6 +122,8 @@ public class InterfaceController implements Initializable {
 		setVolumeSlider();
 		setArtistListItemAction();
 		setTrackListView();
+		setSearchField();
+		setLibraryWatcher();
 	}
 
 
@@ -104,19 +133,30 @@ public class InterfaceController implements Initializable {
 	 * 
 	 * The library being used when the application was last shutdown will be
 	 * automatically saved and retrieved on the next start up. If no library has
-	 * been previously selected, no library is retrieved.
+	 * been previously selected, no library is retrieved. The library snapshot
+	 * is shown first when it was taken of the saved library directory, and
+	 * the directory is listed as before otherwise.
 	 */
 	private void initializeLibrary() {
 
 		String directoryPath = MusicLibrary.retrieveLibraryDirectory();
+		LibrarySnapshot snapshot = LibrarySnapshot.load();
+
+		if (snapshot != null && snapshot.getRoot().getPath().equals(directoryPath)) {
+			artistItems = MusicLibrary.restoreArtistList(snapshot);
+			artistList.setItems(artistItems);
+			MusicLibrary.setFileNames(artistList);
+			return;
+		}
 
 		if (directoryPath != null && directoryPath.trim().length() > 0) {
 
 			File directory = new File(directoryPath);
 
 			if (directory != null) {
-				artistList.setItems(MusicLibrary.populateArtistList(directory));
-				MusicLibrary.setFileNames(artistList, false);
+				artistItems = MusicLibrary.populateArtistList(directory);
+				artistList.setItems(artistItems);
+				MusicLibrary.setFileNames(artistList);
 			}
 		}
 	}
@@ -136,8 +176,8 @@ public class InterfaceController implements Initializable {
 		if (playlist != null && playlist.trim().length() > 0) {
 			MusicPlaylist.setCurrentPlaylist(playlist);
 			playlists.getSelectionModel().select(playlist);
-			playlistView.setItems(MusicPlaylist.populatePlaylistView());
-			MusicLibrary.setFileNames(playlistView, true);
+			MusicPlaylist.refreshPlaylistView(CompletableFuture.completedFuture(null), playlistView);
+			MusicLibrary.setFileNames(playlistView);
 		}
 	}
 
@@ -227,26 +267,27 @@ public class InterfaceController implements Initializable {
 	 * @param file The file whose info will be displayed
 	 */
 	private void setInfoLabels(File file) {
-		setArtistLabel(file);
-		setTrackLabel(file);
+		TrackMetadata metadata = MusicLibrary.getMetaData(file);
+		setArtistLabel(metadata);
+		setTrackLabel(metadata);
 	}
 
 
 	/*
-	 * Track artist is retrieved from the MetaDataParser. This info is displayed
-	 * next to the album art for currently playing media
+	 * Track artist is retrieved from the track's metadata. This info is
+	 * displayed next to the album art for currently playing media
 	 */
-	private void setArtistLabel(File file) {
-		artistLabel.setText("[ " + MetaDataParser.getArtist(file) + " ]");
+	private void setArtistLabel(TrackMetadata metadata) {
+		artistLabel.setText("[ " + metadata.getArtist() + " ]");
 	}
 
 
 	/*
-	 * Track title is retrieved from the MetaDataParser. This info is displayed
-	 * next to the album art for currently playing media
+	 * Track title is retrieved from the track's metadata. This info is
+	 * displayed next to the album art for currently playing media
 	 */
-	private void setTrackLabel(File file) {
-		trackLabel.setText("- " + MetaDataParser.getTitle(file));
+	private void setTrackLabel(TrackMetadata metadata) {
+		trackLabel.setText("- " + metadata.getTitle());
 	}
 
 
@@ -280,9 +321,9 @@ public class InterfaceController implements Initializable {
 
 			@Override
 			public void handle(ActionEvent e) {
-				artistList
-						.setItems(MusicLibrary.showDialogWindow(playButton.getScene().getWindow()));
-				MusicLibrary.setFileNames(artistList, false);
+				artistItems = MusicLibrary.showDialogWindow(playButton.getScene().getWindow());
+				artistList.setItems(artistItems);
+				MusicLibrary.setFileNames(artistList);
 			}
 		});
 	}
@@ -316,6 +357,7 @@ public class InterfaceController implements Initializable {
 		setPlaylistItemAction();
 		playlists.setItems(MusicPlaylist.populatePlaylistMenu());
 		MusicPlaylist.setContextMenu(playlistView);
+		MusicPlaylist.setDragAndDrop(playlistView);
 
 		playlists.setOnAction(new EventHandler<ActionEvent>() {
 
@@ -323,9 +365,8 @@ public class InterfaceController implements Initializable {
 			@Override
 			public void handle(ActionEvent e) {
 				MusicPlaylist.setCurrentPlaylist(playlists.getSelectionModel().getSelectedItem());
-				playlistView.getItems().clear();
-				playlistView.setItems(MusicPlaylist.populatePlaylistView());
-				MusicLibrary.setFileNames(playlistView, true);
+				MusicPlaylist.refreshPlaylistView(CompletableFuture.completedFuture(null), playlistView);
+				MusicLibrary.setFileNames(playlistView);
 			}
 		});
 	}
@@ -334,17 +375,24 @@ public class InterfaceController implements Initializable {
 	/*
 	 * When an item is clicked in the artist list view the selected directory is
 	 * used to populate the track list view and the tracklist's files are set to
-	 * display track titles. Album art is also set.
+	 * display track titles. Album art is also set. Right clicking the artist
+	 * list offers a search of the library for duplicate tracks.
 	 */
 	private void setArtistListItemAction() {
+		MusicLibrary.setArtistContextMenu(artistList);
+
 		artistList.setOnMouseClicked(new EventHandler<MouseEvent>() {
 
 
 			@Override
 			public void handle(MouseEvent e) {
-				trackList.setItems(MusicLibrary.populateTrackList(artistList.getSelectionModel().getSelectedItem()));
-				MusicLibrary.setFileNames(trackList, false);
-				albumArt.setImage(MusicLibrary.setAlbumArt(artistList.getSelectionModel().getSelectedItem()));
+				LibraryItem selected = artistList.getSelectionModel().getSelectedItem();
+
+				if (selected != null) {
+					showTracks(selected.getFile());
+					MusicLibrary.setFileNames(trackList);
+					AlbumArtService.show(selected.getFile(), albumArt);
+				}
 			}
 		});
 	}
@@ -363,6 +411,50 @@ public class InterfaceController implements Initializable {
 	}
 
 
+	/*
+	 * Populates the track list view with the contents of a directory, read in
+	 * the background
+	 */
+	private void showTracks(File directory) {
+
+		if (directory == null)
+			return;
+
+		trackDirectory = directory;
+		trackList.setItems(trackItems);
+		DirectoryLoader.load(directory, trackItems, false);
+	}
+
+
+	/*
+	 * Applies files added, removed or changed in the library while the
+	 * application runs to the artist and track list views. The track list
+	 * items are updated even while search results are shown in their place.
+	 */
+	private void setLibraryWatcher() {
+
+		LibraryWatcher.setOnChange(changes -> {
+			MusicLibrary.applyLibraryChanges(artistItems, MusicLibrary.getLibraryDirectory(), changes,
+					true);
+			MusicLibrary.applyLibraryChanges(trackItems, trackDirectory, changes, false);
+
+			// the playlist rows of changed or removed tracks are made again
+			if (!changes.getModified().isEmpty() || !changes.getDeleted().isEmpty())
+				MusicPlaylist.refreshPlaylistView(CompletableFuture.completedFuture(null), playlistView);
+		});
+	}
+
+
+	/*
+	 * Sets up the search field. Matching tracks from the whole library are
+	 * shown in the track list view while a search is entered, and the artist
+	 * list only shows the folders holding them.
+	 */
+	private void setSearchField() {
+		LibrarySearch.setSearchField(searchField, trackList, artistList);
+	}
+
+
 	/*
 	 * Sets the action for when an track is selected in the track list view.
 	 * 
@@ -401,7 +493,7 @@ public class InterfaceController implements Initializable {
 			if (currentMedia != null)
 				currentMedia.stop();
 
-			File file = trackList.getSelectionModel().getSelectedItem();
+			File file = trackList.getSelectionModel().getSelectedItem().getFile();
 
 			currentMedia = new MusicPlayer(file);
 			currentMedia.setVolume(getCurrentVoume());
@@ -416,11 +508,11 @@ public class InterfaceController implements Initializable {
 
 		if (trackList.getSelectionModel().getSelectedItem() != null) {
 
-			File file = trackList.getSelectionModel().getSelectedItem();
+			File file = trackList.getSelectionModel().getSelectedItem().getFile();
 
 			trackList.setItems(null);
-			trackList.setItems(MusicLibrary.populateTrackList(file));
-			albumArt.setImage(MusicLibrary.setAlbumArt(file));
+			showTracks(file);
+			AlbumArtService.show(file, albumArt);
 		}
 	}
 
@@ -442,16 +534,19 @@ public class InterfaceController implements Initializable {
 
 				if (e.getButton().equals(MouseButton.PRIMARY)) {
 
-					if (playlistView.getSelectionModel().getSelectedItem() != null) {
+					LibraryItem selected = playlistView.getSelectionModel().getSelectedItem();
+
+					// rows still loading have no file to play
+					if (selected != null && selected.getFile() != null) {
 
 						if (currentMedia != null)
 							currentMedia.stop();
 
-						File file = playlistView.getSelectionModel().getSelectedItem();
+						File file = selected.getFile();
 
 						currentMedia = new MusicPlayer(file);
 						currentMedia.setVolume(getCurrentVoume());
-						albumArt.setImage(MusicLibrary.setAlbumArt(file.getParentFile()));
+						AlbumArtService.show(file.getParentFile(), albumArt);
 
 						setInfoLabels(file);
 						setProgressBar();
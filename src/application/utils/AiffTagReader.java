@@ -0,0 +1,140 @@
+package application.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * AiffTagReader. Reads the tags and duration of an AIFF file by walking its
+ * chunk headers. Tags come from the NAME and AUTH chunks and from an embedded
+ * ID3 chunk, the sound data is skipped.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class AiffTagReader {
+
+
+	private static final int CHUNK_HEADER_SIZE = 8;
+
+	/*
+	 * Text chunks larger than this are ignored
+	 */
+	private static final int MAX_TEXT_SIZE = 64 * 1024;
+
+
+	/**
+	 * Reads the tags and duration of an AIFF or AIFF-C file.
+	 *
+	 * @param file The AIFF file
+	 * @return The metadata of the track
+	 * @throws IOException If the file could not be read
+	 */
+	public static TrackMetadata read(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			ByteBuffer header = ID3TagReader.readAt(channel, 0, 12);
+
+			if (header.remaining() < 12 || !TagReaderUtils.matches(header, 0, "FORM")
+					|| !(TagReaderUtils.matches(header, 8, "AIFF") || TagReaderUtils.matches(header, 8, "AIFC")))
+				return new TrackMetadata(null, null, null, 0, 0, 0);
+
+			String title = null;
+			String artist = null;
+			double duration = 0;
+			int bitrate = 0;
+			ID3TagReader.Tag id3 = null;
+
+			long position = 12;
+			long end = Math.min(channel.size(), 8 + (header.getInt(4) & 0xFFFFFFFFL));
+
+			while (position + CHUNK_HEADER_SIZE <= end) {
+
+				ByteBuffer chunk = ID3TagReader.readAt(channel, position, CHUNK_HEADER_SIZE);
+
+				if (chunk.remaining() < CHUNK_HEADER_SIZE)
+					break;
+
+				long size = chunk.getInt(4) & 0xFFFFFFFFL;
+				long body = position + CHUNK_HEADER_SIZE;
+
+				if (TagReaderUtils.matches(chunk, 0, "COMM")) {
+					ByteBuffer common = ID3TagReader.readAt(channel, body, 18);
+
+					if (common.remaining() == 18) {
+						int channels = common.getShort(0);
+						long frames = common.getInt(2) & 0xFFFFFFFFL;
+						int sampleSize = common.getShort(6);
+						double sampleRate = readExtended(common, 8);
+
+						if (sampleRate > 0) {
+							duration = frames / sampleRate;
+							bitrate = (int) (channels * sampleSize * sampleRate / 1000);
+						}
+					}
+
+				} else if (TagReaderUtils.matches(chunk, 0, "NAME") && size <= MAX_TEXT_SIZE) {
+					title = decode(ID3TagReader.readAt(channel, body, (int) size));
+
+				} else if (TagReaderUtils.matches(chunk, 0, "AUTH") && size <= MAX_TEXT_SIZE) {
+					artist = decode(ID3TagReader.readAt(channel, body, (int) size));
+
+				} else if (TagReaderUtils.matches(chunk, 0, "ID3 ")) {
+					id3 = ID3TagReader.read(channel, body);
+				}
+
+				// chunks are padded to an even length
+				position = body + size + (size & 1);
+			}
+
+			String album = null;
+			int trackNumber = 0;
+
+			if (id3 != null) {
+				title = title != null ? title : id3.getTitle();
+				artist = artist != null ? artist : id3.getArtist();
+				album = id3.getAlbum();
+				trackNumber = id3.getTrackNumber();
+			}
+
+			return new TrackMetadata(title, artist, album, trackNumber, duration, bitrate);
+		}
+	}
+
+
+	/*
+	 * Decodes the 80 bit IEEE extended float used for the sample rate
+	 */
+	private static double readExtended(ByteBuffer buffer, int offset) {
+
+		int exponent = buffer.getShort(offset) & 0x7FFF;
+		long mantissa = buffer.getLong(offset + 2);
+
+		if (exponent == 0 && mantissa == 0)
+			return 0;
+
+		// the mantissa is unsigned with an explicit leading bit
+		double value = (mantissa >>> 1) * 2.0 + (mantissa & 1);
+		return value * Math.pow(2, exponent - 16383 - 63);
+	}
+
+
+	/*
+	 * Decodes a text chunk, returning null when it is blank
+	 */
+	private static String decode(ByteBuffer text) {
+
+		int end = 0;
+
+		while (end < text.limit() && text.get(end) != 0)
+			end++;
+
+		String value = new String(text.array(), 0, end, StandardCharsets.ISO_8859_1).trim();
+		return value.isEmpty() ? null : value;
+	}
+
+}
@@ -0,0 +1,721 @@
+package application.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * ID3TagReader. Reads ID3v2.2, ID3v2.3 and ID3v2.4 tags and the 128 byte
+ * ID3v1 trailer of an MP3 file without touching the audio frames.
+ *
+ * Only the frame headers and the text frames that are needed are read, so
+ * large frames such as embedded pictures are skipped over. The location of
+ * the picture is noted on the way, so it can later be read without walking
+ * the tag again.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class ID3TagReader {
+
+
+	private static final int HEADER_SIZE = 10;
+	private static final int V1_SIZE = 128;
+
+	/*
+	 * Header flags
+	 */
+	private static final int FLAG_UNSYNCHRONISATION = 0x80;
+	private static final int FLAG_EXTENDED_HEADER = 0x40;
+	private static final int FLAG_FOOTER = 0x10;
+
+	/*
+	 * Frame IDs by field for ID3v2.2 and ID3v2.3 / ID3v2.4
+	 */
+	private static final String[] TITLE = { "TT2", "TIT2" };
+	private static final String[] ARTIST = { "TP1", "TPE1" };
+	private static final String[] ALBUM = { "TAL", "TALB" };
+	private static final String[] TRACK = { "TRK", "TRCK" };
+	private static final String[] LENGTH = { "TLE", "TLEN" };
+	private static final String[] PICTURE = { "PIC", "APIC" };
+
+	/*
+	 * Picture type of the front cover
+	 */
+	private static final int FRONT_COVER = 3;
+
+	/*
+	 * The most bytes read from the start of a picture frame to find where its
+	 * image begins
+	 */
+	private static final int PICTURE_HEADER_SIZE = 512;
+
+	private static final Charset ISO_8859_1 = StandardCharsets.ISO_8859_1;
+
+
+	/**
+	 * Tag. The fields read from the ID3 tags of a single file together with the
+	 * location of its audio data.
+	 */
+	public static class Tag {
+
+
+		private String title;
+		private String artist;
+		private String album;
+		private int trackNumber;
+		private long length;
+		private long audioStart;
+		private long audioEnd;
+		private byte[] picture;
+		private int pictureType = -1;
+		private long artOffset;
+		private int artLength;
+		private int artType = -1;
+
+
+		public String getTitle() {
+			return title;
+		}
+
+
+		public String getArtist() {
+			return artist;
+		}
+
+
+		public String getAlbum() {
+			return album;
+		}
+
+
+		public int getTrackNumber() {
+			return trackNumber;
+		}
+
+
+		/**
+		 * Returns the length stored in the TLEN frame.
+		 *
+		 * @return The length in milliseconds, 0 if the tag has none
+		 */
+		public long getLength() {
+			return length;
+		}
+
+
+		/**
+		 * Returns the offset of the first byte after the ID3v2 tag.
+		 *
+		 * @return The offset where the audio data starts
+		 */
+		public long getAudioStart() {
+			return audioStart;
+		}
+
+
+		/**
+		 * Returns the offset of the ID3v1 trailer, or the file size when there
+		 * is none.
+		 *
+		 * @return The offset where the audio data ends
+		 */
+		public long getAudioEnd() {
+			return audioEnd;
+		}
+
+
+		/**
+		 * Returns the embedded picture, only read by
+		 * {@link ID3TagReader#readPicture(FileChannel, long)}.
+		 *
+		 * @return The encoded image, the front cover where there is one, or
+		 *         null if the tag has no picture
+		 */
+		public byte[] getPicture() {
+			return picture;
+		}
+
+
+		/**
+		 * Returns where the image of the embedded picture starts in the file,
+		 * noted while the tags were read.
+		 *
+		 * @return The offset of the image, only meaningful when it has a
+		 *         length
+		 */
+		public long getArtOffset() {
+			return artOffset;
+		}
+
+
+		/**
+		 * Returns the length of the image of the embedded picture, the front
+		 * cover where there is one.
+		 *
+		 * @return The length of the image, 0 if the tag has no picture, or -1
+		 *         if its bytes were altered by unsynchronisation or frame
+		 *         flags and can only be read through readPicture
+		 */
+		public int getArtLength() {
+			return artLength;
+		}
+
+
+		/**
+		 * Checks whether any text field was found.
+		 *
+		 * @return True if the tags held a title, artist or album
+		 */
+		public boolean hasText() {
+			return title != null || artist != null || album != null;
+		}
+	}
+
+
+	/**
+	 * Reads the ID3 tags of a file. Fields missing from the ID3v2 tag are
+	 * taken from the ID3v1 trailer when there is one.
+	 *
+	 * @param file The MP3 file to read
+	 * @return The tag fields, empty if the file has no tags
+	 * @throws IOException If the file could not be read
+	 */
+	public static Tag read(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+
+
+	/**
+	 * Reads the ID3 tags from an open channel.
+	 *
+	 * @param channel The channel of the MP3 file
+	 * @return The tag fields, empty if the file has no tags
+	 * @throws IOException If the file could not be read
+	 */
+	public static Tag read(FileChannel channel) throws IOException {
+
+		Tag tag = new Tag();
+		tag.audioEnd = channel.size();
+
+		readV2(channel, 0, tag, false);
+		readV1(channel, tag);
+
+		return tag;
+	}
+
+
+	/**
+	 * Reads an ID3v2 tag embedded at an offset of a file, such as the ID3
+	 * chunk of a WAV or AIFF file.
+	 *
+	 * @param channel The channel of the file
+	 * @param offset The offset of the tag header
+	 * @return The tag fields, empty if there is no tag at the offset
+	 * @throws IOException If the file could not be read
+	 */
+	public static Tag read(FileChannel channel, long offset) throws IOException {
+
+		Tag tag = new Tag();
+		tag.audioEnd = channel.size();
+
+		readV2(channel, offset, tag, false);
+		return tag;
+	}
+
+
+	/**
+	 * Reads the embedded picture of a file, preferring the front cover when
+	 * the tag has several.
+	 *
+	 * @param file The MP3 file
+	 * @return The encoded image or null if the file has none
+	 * @throws IOException If the file could not be read
+	 */
+	public static byte[] readPicture(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return readPicture(channel, 0);
+		}
+	}
+
+
+	/**
+	 * Reads the embedded picture of an ID3v2 tag at an offset of a file.
+	 *
+	 * @param channel The channel of the file
+	 * @param offset The offset of the tag header
+	 * @return The encoded image or null if the tag has none
+	 * @throws IOException If the file could not be read
+	 */
+	public static byte[] readPicture(FileChannel channel, long offset) throws IOException {
+
+		Tag tag = new Tag();
+		readV2(channel, offset, tag, true);
+		return tag.picture;
+	}
+
+
+	/*
+	 * Reads the ID3v2 tag at an offset of the file, if any
+	 */
+	private static void readV2(FileChannel channel, long offset, Tag tag, boolean pictures) throws IOException {
+
+		ByteBuffer header = readAt(channel, offset, HEADER_SIZE);
+
+		if (header.remaining() < HEADER_SIZE || header.get(0) != 'I' || header.get(1) != 'D' || header.get(2) != '3')
+			return;
+
+		int version = header.get(3);
+		int flags = header.get(5) & 0xFF;
+		int size = syncsafe(header, 6);
+
+		tag.audioStart = offset + HEADER_SIZE + size + ((flags & FLAG_FOOTER) != 0 ? HEADER_SIZE : 0);
+
+		if (version < 2 || version > 4)
+			return;
+
+		Source source;
+
+		if ((flags & FLAG_UNSYNCHRONISATION) != 0 && version < 4) {
+			// tag wide unsynchronisation, the frames can only be located once
+			// the whole tag has been resynchronised
+			source = new BufferSource(resynchronise(readAt(channel, offset + HEADER_SIZE, size)));
+		} else {
+			source = new ChannelSource(channel, offset + HEADER_SIZE, size);
+		}
+
+		int position = 0;
+
+		if ((flags & FLAG_EXTENDED_HEADER) != 0 && version > 2) {
+			ByteBuffer extended = source.read(0, 4);
+
+			if (extended.remaining() < 4)
+				return;
+
+			position = version == 4 ? syncsafe(extended, 0) : extended.getInt(0) + 4;
+		}
+
+		readFrames(source, version, position, size, tag, pictures);
+	}
+
+
+	/*
+	 * Walks the frames of an ID3v2 tag, reading the data of wanted frames only.
+	 * Picture frames are only wanted when asked for.
+	 */
+	private static void readFrames(Source source, int version, int position, int size, Tag tag,
+			boolean pictures) throws IOException {
+
+		int idLength = version == 2 ? 3 : 4;
+		int headerLength = version == 2 ? 6 : 10;
+		int index = version == 2 ? 0 : 1;
+
+		while (position + headerLength <= size) {
+
+			ByteBuffer header = source.read(position, headerLength);
+
+			if (header.remaining() < headerLength || header.get(0) == 0)
+				return;
+
+			String id = new String(header.array(), header.arrayOffset(), idLength, ISO_8859_1);
+			int frameSize;
+			int formatFlags = 0;
+
+			if (version == 2)
+				frameSize = ((header.get(3) & 0xFF) << 16) | ((header.get(4) & 0xFF) << 8) | (header.get(5) & 0xFF);
+			else if (version == 3)
+				frameSize = header.getInt(4);
+			else
+				frameSize = syncsafe(header, 4);
+
+			if (version > 2)
+				formatFlags = header.get(9) & 0xFF;
+
+			if (frameSize <= 0 || position + headerLength + frameSize > size)
+				return;
+
+			if (pictures ? id.equals(PICTURE[index]) : isWanted(id, index))
+				readFrame(source.read(position + headerLength, frameSize), id, index, version, formatFlags, tag);
+			else if (id.equals(PICTURE[index]))
+				locatePicture(source, position + headerLength, frameSize, version, formatFlags, tag);
+
+			position += headerLength + frameSize;
+		}
+	}
+
+
+	/*
+	 * Decodes a wanted text or picture frame into the tag, handling the per
+	 * frame flags of ID3v2.3 and ID3v2.4
+	 */
+	private static void readFrame(ByteBuffer data, String id, int index, int version, int formatFlags, Tag tag) {
+
+		if (version == 3) {
+			// compressed or encrypted frames are skipped
+			if ((formatFlags & 0xC0) != 0)
+				return;
+
+			if ((formatFlags & 0x20) != 0)
+				data.position(data.position() + 1);
+
+		} else if (version == 4) {
+			if ((formatFlags & 0x0C) != 0)
+				return;
+
+			if ((formatFlags & 0x40) != 0)
+				data.position(data.position() + 1);
+
+			if ((formatFlags & 0x01) != 0)
+				data.position(data.position() + 4);
+
+			if ((formatFlags & 0x02) != 0)
+				data = resynchronise(data);
+		}
+
+		if (id.equals(PICTURE[index])) {
+			readPicture(data, version, tag);
+			return;
+		}
+
+		String text = decodeText(data);
+
+		if (text == null || text.isEmpty())
+			return;
+
+		if (id.equals(TITLE[index]))
+			tag.title = text;
+		else if (id.equals(ARTIST[index]))
+			tag.artist = text;
+		else if (id.equals(ALBUM[index]))
+			tag.album = text;
+		else if (id.equals(TRACK[index]))
+			tag.trackNumber = (int) TagReaderUtils.leadingNumber(text);
+		else if (id.equals(LENGTH[index]))
+			tag.length = TagReaderUtils.leadingNumber(text);
+	}
+
+
+	/*
+	 * Decodes a picture frame, keeping the first picture or the front cover
+	 */
+	private static void readPicture(ByteBuffer data, int version, Tag tag) {
+
+		int type = skipPictureHeader(data, version);
+
+		if (type < 0 || (tag.picture != null && (tag.pictureType == FRONT_COVER || type != FRONT_COVER)))
+			return;
+
+		byte[] picture = new byte[data.remaining()];
+		data.get(picture);
+		tag.picture = picture;
+		tag.pictureType = type;
+	}
+
+
+	/*
+	 * Notes where the image of a picture frame lies in the file without
+	 * reading the image, keeping the first picture or the front cover. A
+	 * picture whose bytes are not stored as they are in the file is only
+	 * marked as present.
+	 */
+	private static void locatePicture(Source source, int position, int frameSize, int version, int formatFlags,
+			Tag tag) throws IOException {
+
+		if (tag.artType == FRONT_COVER)
+			return;
+
+		long fileOffset = source.getFileOffset(position);
+		int type = -1;
+		ByteBuffer data = null;
+
+		if (fileOffset >= 0 && formatFlags == 0) {
+			data = source.read(position, Math.min(frameSize, PICTURE_HEADER_SIZE));
+			type = skipPictureHeader(data, version);
+		}
+
+		if (type < 0) {
+			if (tag.artLength == 0)
+				tag.artLength = -1;
+			return;
+		}
+
+		if (tag.artLength > 0 && type != FRONT_COVER)
+			return;
+
+		tag.artOffset = fileOffset + data.position();
+		tag.artLength = frameSize - data.position();
+		tag.artType = type;
+	}
+
+
+	/*
+	 * Skips the encoding, image format, picture type and description at the
+	 * start of a picture frame. Returns the picture type, or -1 if no image
+	 * follows within the data.
+	 */
+	private static int skipPictureHeader(ByteBuffer data, int version) {
+
+		if (data.remaining() < 4)
+			return -1;
+
+		int encoding = data.get();
+
+		// ID3v2.2 has a three letter image format instead of a MIME type
+		if (version == 2)
+			data.position(data.position() + 3);
+		else
+			while (data.hasRemaining() && data.get() != 0)
+				;
+
+		if (!data.hasRemaining())
+			return -1;
+
+		int type = data.get() & 0xFF;
+
+		// skips the description, terminated by one or two zero bytes
+		if (encoding == 1 || encoding == 2) {
+			while (data.remaining() >= 2 && (data.get() | data.get()) != 0)
+				;
+		} else {
+			while (data.hasRemaining() && data.get() != 0)
+				;
+		}
+		return data.hasRemaining() ? type : -1;
+	}
+
+
+	/*
+	 * Reads the ID3v1 trailer and fills in any field the ID3v2 tag did not
+	 * have
+	 */
+	private static void readV1(FileChannel channel, Tag tag) throws IOException {
+
+		long start = channel.size() - V1_SIZE;
+
+		if (start < tag.audioStart)
+			return;
+
+		ByteBuffer trailer = readAt(channel, start, V1_SIZE);
+
+		if (trailer.remaining() < V1_SIZE || trailer.get(0) != 'T' || trailer.get(1) != 'A' || trailer.get(2) != 'G')
+			return;
+
+		tag.audioEnd = start;
+
+		if (tag.title == null)
+			tag.title = decodeV1(trailer, 3, 30);
+
+		if (tag.artist == null)
+			tag.artist = decodeV1(trailer, 33, 30);
+
+		if (tag.album == null)
+			tag.album = decodeV1(trailer, 63, 30);
+
+		// ID3v1.1 stores the track number in the last byte of the comment
+		if (tag.trackNumber == 0 && trailer.get(125) == 0 && trailer.get(126) != 0)
+			tag.trackNumber = trailer.get(126) & 0xFF;
+	}
+
+
+	/*
+	 * Decodes a fixed width ID3v1 field, returning null when it is blank
+	 */
+	private static String decodeV1(ByteBuffer trailer, int offset, int length) {
+
+		int end = offset;
+
+		while (end < offset + length && trailer.get(end) != 0)
+			end++;
+
+		String text = new String(trailer.array(), trailer.arrayOffset() + offset, end - offset, ISO_8859_1).trim();
+		return text.isEmpty() ? null : text;
+	}
+
+
+	/*
+	 * Decodes the text of a text frame using the encoding named by its first
+	 * byte. Only the first of several null separated values is kept.
+	 */
+	private static String decodeText(ByteBuffer data) {
+
+		if (!data.hasRemaining())
+			return null;
+
+		int encoding = data.get();
+		Charset charset;
+		boolean wide = encoding == 1 || encoding == 2;
+
+		switch (encoding) {
+		case 1:
+			charset = StandardCharsets.UTF_16;
+			break;
+		case 2:
+			charset = StandardCharsets.UTF_16BE;
+			break;
+		case 3:
+			charset = StandardCharsets.UTF_8;
+			break;
+		default:
+			charset = ISO_8859_1;
+		}
+
+		int start = data.position();
+		int end = start;
+
+		if (wide) {
+			while (end + 1 < data.limit() && (data.get(end) != 0 || data.get(end + 1) != 0))
+				end += 2;
+		} else {
+			while (end < data.limit() && data.get(end) != 0)
+				end++;
+		}
+
+		byte[] bytes = new byte[end - start];
+		data.get(bytes);
+		return new String(bytes, charset).trim();
+	}
+
+
+	/*
+	 * Removes the zero byte the unsynchronisation scheme inserts after every
+	 * 0xFF byte
+	 */
+	private static ByteBuffer resynchronise(ByteBuffer data) {
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.remaining());
+		boolean afterFF = false;
+
+		while (data.hasRemaining()) {
+			int b = data.get() & 0xFF;
+
+			if (!(afterFF && b == 0))
+				out.write(b);
+
+			afterFF = b == 0xFF;
+		}
+		return ByteBuffer.wrap(out.toByteArray());
+	}
+
+
+	private static boolean isWanted(String id, int index) {
+		return id.equals(TITLE[index]) || id.equals(ARTIST[index]) || id.equals(ALBUM[index])
+				|| id.equals(TRACK[index]) || id.equals(LENGTH[index]);
+	}
+
+
+	/*
+	 * Decodes a 28 bit syncsafe integer stored in four bytes
+	 */
+	private static int syncsafe(ByteBuffer buffer, int offset) {
+		return ((buffer.get(offset) & 0x7F) << 21) | ((buffer.get(offset + 1) & 0x7F) << 14)
+				| ((buffer.get(offset + 2) & 0x7F) << 7) | (buffer.get(offset + 3) & 0x7F);
+	}
+
+
+	/*
+	 * Reads up to length bytes at a position of the channel
+	 */
+	static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				break;
+		}
+
+		buffer.flip();
+		return buffer;
+	}
+
+
+	/*
+	 * Random access to the bytes of a tag after its header
+	 */
+	private interface Source {
+
+		ByteBuffer read(int position, int length) throws IOException;
+
+		/*
+		 * The offset in the file of a position of the tag, or -1 if the tag
+		 * is not read from the file as it is stored
+		 */
+		long getFileOffset(int position);
+	}
+
+
+	/*
+	 * Reads tag bytes directly from the file
+	 */
+	private static class ChannelSource implements Source {
+
+
+		private final FileChannel channel;
+		private final long offset;
+		private final int size;
+
+
+		private ChannelSource(FileChannel channel, long offset, int size) {
+			this.channel = channel;
+			this.offset = offset;
+			this.size = size;
+		}
+
+
+		@Override
+		public ByteBuffer read(int position, int length) throws IOException {
+			return readAt(channel, offset + position, Math.max(0, Math.min(length, size - position)));
+		}
+
+
+		@Override
+		public long getFileOffset(int position) {
+			return offset + position;
+		}
+	}
+
+
+	/*
+	 * Reads tag bytes from a resynchronised copy held in memory
+	 */
+	private static class BufferSource implements Source {
+
+
+		private final ByteBuffer buffer;
+
+
+		private BufferSource(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+
+		@Override
+		public ByteBuffer read(int position, int length) {
+
+			int start = Math.min(position, buffer.limit());
+			int end = Math.min(position + length, buffer.limit());
+			byte[] bytes = new byte[end - start];
+
+			for (int i = start; i < end; i++)
+				bytes[i - start] = buffer.get(i);
+
+			return ByteBuffer.wrap(bytes);
+		}
+
+
+		@Override
+		public long getFileOffset(int position) {
+			return -1;
+		}
+	}
+
+}
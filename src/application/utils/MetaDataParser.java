@@ -5,6 +5,9 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 
 import org.apache.tika.exception.TikaException;
 import org.apache.tika.metadata.Metadata;
@@ -20,12 +23,189 @@ import application.logic.MusicPlayer;
 /**
  * MetaDataParser. This class can retrieve a track title and artist.
  * 
+ * All fields are read by a single parse of the file, see
+ * {@link #getMetaData(File)}. The ID3 tags of MP3 files are read directly by
+ * {@link ID3TagReader} and their duration is estimated by {@link Mp3Duration}.
+ * M4A, WAV and AIFF files have readers of their own, Tika is only used for
+ * other files.
+ * 
  * @author Rocky Robson - A00914509
  * @version Dec 14, 2016
  */
 public class MetaDataParser {
 
 
+	/**
+	 * Reads all the metadata of a specific file in a single pass. Callers that
+	 * need more than one field of a track should use this rather than the
+	 * single field getters.
+	 * 
+	 * @param file The track whose metadata will be retrieved
+	 * @return The title, artist, album, track number, duration and bitrate of
+	 *         the track
+	 */
+	public static TrackMetadata getMetaData(File file) {
+
+		TrackMetadata metadata = readTags(file);
+		return metadata != null ? metadata : parseWithTika(file);
+	}
+
+
+	/**
+	 * Reads all the metadata of a file with Tika, which decodes every frame
+	 * of the file. Used for formats without a reader of their own, and as the
+	 * baseline the readers are measured against.
+	 * 
+	 * @param file The track whose metadata will be retrieved
+	 * @return The title, artist, album, track number, duration and bitrate of
+	 *         the track
+	 */
+	public static TrackMetadata parseWithTika(File file) {
+
+		Metadata data = parseMetaData(file);
+		double duration = parseNumber(data.get("xmpDM:duration")) / 1000;
+
+		return new TrackMetadata(data.get("title"), data.get("creator"), data.get("xmpDM:album"),
+				(int) parseNumber(data.get("xmpDM:trackNumber")), duration, getBitrate(file, duration));
+	}
+
+
+	/*
+	 * Reads the tags of the formats that have a reader of their own, returning
+	 * null for other formats or when the file could not be read
+	 */
+	private static TrackMetadata readTags(File file) {
+
+		String name = file.getName().toLowerCase();
+
+		try {
+			if (name.endsWith(".mp3"))
+				return readMP3(file);
+			else if (name.endsWith(".m4a"))
+				return Mp4TagReader.read(file);
+			else if (name.endsWith(".wav"))
+				return WavTagReader.read(file);
+			else if (name.endsWith(".aif") || name.endsWith(".aiff"))
+				return AiffTagReader.read(file);
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+
+	/**
+	 * Reads the cover art embedded in the tags of an MP3 or M4A file.
+	 * 
+	 * @param file The track whose cover art will be read
+	 * @return The encoded image or null if the track has none
+	 */
+	public static byte[] getAlbumArt(File file) {
+
+		String name = file.getName().toLowerCase();
+
+		try {
+			if (name.endsWith(".mp3"))
+				return ID3TagReader.readPicture(file);
+			else if (name.endsWith(".m4a"))
+				return Mp4TagReader.readPicture(file);
+
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return null;
+	}
+
+
+	/**
+	 * Reads the cover art of a track from where it was found when the tags
+	 * were read, without walking the tags again. Art that could not be
+	 * located then is read by parsing the tags.
+	 * 
+	 * @param file The track whose cover art will be read
+	 * @param metadata The metadata read from the track
+	 * @return The encoded image or null if the track has none
+	 */
+	public static byte[] getAlbumArt(File file, TrackMetadata metadata) {
+
+		if (metadata.getArtLength() < 0)
+			return getAlbumArt(file);
+
+		if (metadata.getArtLength() == 0)
+			return null;
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			if (metadata.getArtOffset() + metadata.getArtLength() > channel.size())
+				return null;
+
+			ByteBuffer image = ID3TagReader.readAt(channel, metadata.getArtOffset(), metadata.getArtLength());
+			byte[] picture = new byte[image.remaining()];
+			image.get(picture);
+			return picture;
+
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+
+	/*
+	 * Reads the ID3 tags of an MP3 file and estimates its duration from the
+	 * first frame.
+	 */
+	private static TrackMetadata readMP3(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			ID3TagReader.Tag tag = ID3TagReader.read(channel);
+			double duration = tag.getLength() / 1000.0;
+
+			if (duration <= 0)
+				duration = Mp3Duration.estimate(channel, tag);
+
+			// the tags are left out so embedded art does not inflate the bitrate
+			long audioBytes = tag.getAudioEnd() - tag.getAudioStart();
+			int bitrate = duration > 0 ? (int) Math.round(audioBytes * 8 / duration / 1000) : 0;
+
+			return new TrackMetadata(tag.getTitle(), tag.getArtist(), tag.getAlbum(), tag.getTrackNumber(),
+					duration, bitrate, tag.getArtOffset(), tag.getArtLength());
+		}
+	}
+
+
+	/*
+	 * The average bitrate of a file in kbps
+	 */
+	private static int getBitrate(File file, double duration) {
+		return duration > 0 ? (int) Math.round(file.length() * 8 / duration / 1000) : 0;
+	}
+
+
+	/*
+	 * Parses the leading number of a metadata value such as "3/12" or
+	 * "2612.24". Returns 0 when there is no number.
+	 */
+	private static double parseNumber(String value) {
+
+		if (value == null)
+			return 0;
+
+		int end = 0;
+
+		while (end < value.length() && (Character.isDigit(value.charAt(end)) || value.charAt(end) == '.'))
+			end++;
+
+		try {
+			return end > 0 ? Double.parseDouble(value.substring(0, end)) : 0;
+		} catch (NumberFormatException e) {
+			return 0;
+		}
+	}
+
+
 	private static Metadata parseMetaData(File file) {
 		Metadata data = new Metadata();
 
@@ -56,8 +236,7 @@ public class MetaDataParser {
 	 * @return The track title as a string
 	 */
 	public static String getTitle(File file) {
-		return parseMetaData(file).get("title");
-
+		return getMetaData(file).getTitle();
 	}
 
 
@@ -68,7 +247,7 @@ public class MetaDataParser {
 	 * @return The track's artist as a string
 	 */
 	public static String getArtist(File file) {
-		return parseMetaData(file).get("creator");
+		return getMetaData(file).getArtist();
 	}
 	
 	/**
@@ -78,8 +257,29 @@ public class MetaDataParser {
 	 * @return The formatted duration of a track as a string
 	 */
 	public static String getDuration(File file){
-		double durationMillis = Double.valueOf(parseMetaData(file).get("xmpDM:duration"));
-		return MusicPlayer.getFormattedTime(durationMillis);
+		return getMetaData(file).getFormattedDuration();
+	}
+
+
+	/**
+	 * Get the formatted duration of a track (mm:ss), optionally walking every
+	 * frame of an MP3 file rather than estimating from its first frame.
+	 * 
+	 * @param file The track to get the duration of
+	 * @param fullScan True to scan every frame of an MP3 file
+	 * @return The formatted duration of a track as a string
+	 */
+	public static String getDuration(File file, boolean fullScan) {
+
+		if (!fullScan || !file.getName().toLowerCase().endsWith(".mp3"))
+			return getDuration(file);
+
+		try {
+			return MusicPlayer.getFormattedTime(Mp3Duration.scan(file));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return getDuration(file);
+		}
 	}
 
 }
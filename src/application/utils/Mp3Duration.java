@@ -0,0 +1,231 @@
+package application.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mp3Duration. Works out the duration of an MP3 file from its first MPEG
+ * frame rather than by decoding or walking every frame.
+ *
+ * The frame count of a Xing, Info or VBRI header is used when the first frame
+ * carries one. Otherwise the file is taken to be constant bitrate and the
+ * duration follows from the bitrate and the size of the audio data. Walking
+ * every frame header is only done by {@link #scan(File)}.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class Mp3Duration {
+
+
+	/*
+	 * How far past the tag to look for the first frame
+	 */
+	private static final int SEARCH_SIZE = 64 * 1024;
+
+	/*
+	 * Bitrates in kbps by [MPEG 1 or 2][layer I, II, III][bitrate index]
+	 */
+	private static final int[][][] BITRATES = {
+			{ { 0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448 },
+					{ 0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384 },
+					{ 0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320 } },
+			{ { 0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256 },
+					{ 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 },
+					{ 0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160 } } };
+
+	private static final int[] SAMPLE_RATES = { 44100, 48000, 32000 };
+
+
+	/**
+	 * Estimates the duration of an MP3 file from its first frame.
+	 *
+	 * @param file The MP3 file
+	 * @return The duration in seconds, 0 if no MPEG frame was found
+	 * @throws IOException If the file could not be read
+	 */
+	public static double estimate(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return estimate(channel, ID3TagReader.read(channel));
+		}
+	}
+
+
+	/**
+	 * Estimates the duration of an MP3 file whose tags have already been read.
+	 *
+	 * @param channel The channel of the MP3 file
+	 * @param tag The tags of the file, giving the bounds of the audio data
+	 * @return The duration in seconds, 0 if no MPEG frame was found
+	 * @throws IOException If the file could not be read
+	 */
+	public static double estimate(FileChannel channel, ID3TagReader.Tag tag) throws IOException {
+
+		ByteBuffer buffer = ID3TagReader.readAt(channel, tag.getAudioStart(), SEARCH_SIZE);
+		int offset = findFrame(buffer);
+
+		if (offset < 0)
+			return 0;
+
+		Frame frame = new Frame(buffer.getInt(offset));
+		long frames = readFrameCount(buffer, offset, frame);
+
+		if (frames > 0)
+			return (double) frames * frame.samples / frame.sampleRate;
+
+		long audioBytes = tag.getAudioEnd() - tag.getAudioStart() - offset;
+		return audioBytes * 8.0 / (frame.bitrate * 1000);
+	}
+
+
+	/**
+	 * Works out the exact duration of an MP3 file by walking every frame
+	 * header. Much slower than {@link #estimate(File)}, for when an exact value
+	 * is needed.
+	 *
+	 * @param file The MP3 file
+	 * @return The duration in seconds, 0 if no MPEG frame was found
+	 * @throws IOException If the file could not be read
+	 */
+	public static double scan(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			ID3TagReader.Tag tag = ID3TagReader.read(channel);
+			ByteBuffer buffer = ID3TagReader.readAt(channel, tag.getAudioStart(), SEARCH_SIZE);
+			int offset = findFrame(buffer);
+
+			if (offset < 0)
+				return 0;
+
+			long position = tag.getAudioStart() + offset;
+			long bufferStart = position;
+			buffer = ID3TagReader.readAt(channel, position, SEARCH_SIZE);
+			double duration = 0;
+
+			while (position + 4 <= tag.getAudioEnd()) {
+
+				if (position + 4 > bufferStart + buffer.limit()) {
+					bufferStart = position;
+					buffer = ID3TagReader.readAt(channel, position, SEARCH_SIZE);
+
+					if (buffer.limit() < 4)
+						break;
+				}
+
+				int header = buffer.getInt((int) (position - bufferStart));
+
+				if (!isFrameHeader(header))
+					break;
+
+				Frame frame = new Frame(header);
+				duration += (double) frame.samples / frame.sampleRate;
+				position += frame.length;
+			}
+			return duration;
+		}
+	}
+
+
+	/*
+	 * Returns the offset of the first frame header that is followed by another
+	 * frame header, or -1 if there is none
+	 */
+	private static int findFrame(ByteBuffer buffer) {
+
+		for (int offset = 0; offset + 4 <= buffer.limit(); offset++) {
+
+			if ((buffer.get(offset) & 0xFF) != 0xFF || !isFrameHeader(buffer.getInt(offset)))
+				continue;
+
+			Frame frame = new Frame(buffer.getInt(offset));
+			int next = offset + frame.length;
+
+			// a lone sync pattern may be part of the tag's padding or junk
+			if (next + 4 > buffer.limit() || isFrameHeader(buffer.getInt(next)))
+				return offset;
+		}
+		return -1;
+	}
+
+
+	/*
+	 * Reads the frame count of a Xing, Info or VBRI header in the first frame,
+	 * returning 0 when there is none
+	 */
+	private static long readFrameCount(ByteBuffer buffer, int offset, Frame frame) {
+
+		int xing = offset + 4 + frame.sideInfoSize;
+
+		if (xing + 12 <= buffer.limit() && (TagReaderUtils.matches(buffer, xing, "Xing") || TagReaderUtils.matches(buffer, xing, "Info"))) {
+
+			// the frame count is only present when the first flag is set
+			if ((buffer.getInt(xing + 4) & 1) != 0)
+				return buffer.getInt(xing + 8) & 0xFFFFFFFFL;
+
+			return 0;
+		}
+
+		int vbri = offset + 36;
+
+		if (vbri + 18 <= buffer.limit() && TagReaderUtils.matches(buffer, vbri, "VBRI"))
+			return buffer.getInt(vbri + 14) & 0xFFFFFFFFL;
+
+		return 0;
+	}
+
+
+	/*
+	 * Checks the sync bits and rejects reserved versions, layers, bitrates and
+	 * sample rates
+	 */
+	private static boolean isFrameHeader(int header) {
+		return (header & 0xFFE00000) == 0xFFE00000 && ((header >> 19) & 3) != 1 && ((header >> 17) & 3) != 0
+				&& ((header >> 12) & 0xF) != 0 && ((header >> 12) & 0xF) != 0xF && ((header >> 10) & 3) != 3;
+	}
+
+
+	/*
+	 * The fields of a single MPEG audio frame header
+	 */
+	private static class Frame {
+
+
+		private final int bitrate;
+		private final int sampleRate;
+		private final int samples;
+		private final int length;
+		private final int sideInfoSize;
+
+
+		private Frame(int header) {
+
+			int version = (header >> 19) & 3;
+			int layer = 4 - ((header >> 17) & 3);
+			boolean mpeg1 = version == 3;
+			boolean mono = ((header >> 6) & 3) == 3;
+			int padding = (header >> 9) & 1;
+
+			bitrate = BITRATES[mpeg1 ? 0 : 1][layer - 1][(header >> 12) & 0xF];
+			sampleRate = SAMPLE_RATES[(header >> 10) & 3] >> (mpeg1 ? 0 : version == 2 ? 1 : 2);
+
+			if (layer == 1) {
+				samples = 384;
+				length = (12 * bitrate * 1000 / sampleRate + padding) * 4;
+			} else {
+				samples = layer == 3 && !mpeg1 ? 576 : 1152;
+				length = samples / 8 * bitrate * 1000 / sampleRate + padding;
+			}
+
+			if (mpeg1)
+				sideInfoSize = mono ? 17 : 32;
+			else
+				sideInfoSize = mono ? 9 : 17;
+		}
+	}
+
+}
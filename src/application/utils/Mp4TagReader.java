@@ -0,0 +1,286 @@
+package application.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Mp4TagReader. Reads the iTunes style tags and duration of an M4A file by
+ * following the atom headers to moov/mvhd and moov/udta/meta/ilst, skipping
+ * over the media data. The location of the cover art is noted on the way.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class Mp4TagReader {
+
+
+	private static final int ATOM_HEADER_SIZE = 8;
+
+	/*
+	 * Tag items larger than this are not text, such as cover art
+	 */
+	private static final int MAX_ITEM_SIZE = 64 * 1024;
+
+	/*
+	 * Item atom types, the leading character is the copyright sign
+	 */
+	private static final String TITLE = "\u00A9nam";
+	private static final String ARTIST = "\u00A9ART";
+	private static final String ALBUM_ARTIST = "aART";
+	private static final String ALBUM = "\u00A9alb";
+	private static final String TRACK = "trkn";
+	private static final String COVER = "covr";
+
+
+	/**
+	 * Reads the tags and duration of an M4A file.
+	 *
+	 * @param file The M4A file
+	 * @return The metadata of the track
+	 * @throws IOException If the file could not be read
+	 */
+	public static TrackMetadata read(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			Tags tags = new Tags();
+			long[] moov = findAtom(channel, 0, channel.size(), "moov");
+
+			if (moov != null) {
+				long[] mvhd = findAtom(channel, moov[0], moov[1], "mvhd");
+
+				if (mvhd != null)
+					tags.duration = readDuration(readAt(channel, mvhd[0], 32));
+
+				long[] ilst = findPath(channel, moov, "udta", "meta", "ilst");
+
+				if (ilst != null)
+					readItems(channel, ilst, tags);
+			}
+
+			int bitrate = tags.duration > 0 ? (int) Math.round(file.length() * 8 / tags.duration / 1000) : 0;
+			return new TrackMetadata(tags.title, tags.artist, tags.album, tags.trackNumber, tags.duration, bitrate,
+					tags.artOffset, tags.artLength);
+		}
+	}
+
+
+	/**
+	 * Reads the cover art stored in the covr item of an M4A file.
+	 *
+	 * @param file The M4A file
+	 * @return The encoded image or null if the file has none
+	 * @throws IOException If the file could not be read
+	 */
+	public static byte[] readPicture(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			long[] moov = findAtom(channel, 0, channel.size(), "moov");
+			long[] data = moov == null ? null : findPath(channel, moov, "udta", "meta", "ilst", COVER, "data");
+
+			// the data atom starts with four bytes of type and four of locale
+			if (data == null || data[1] - data[0] <= 8)
+				return null;
+
+			ByteBuffer image = readAt(channel, data[0] + 8, (int) (data[1] - data[0] - 8));
+			byte[] picture = new byte[image.remaining()];
+			image.get(picture);
+			return picture;
+		}
+	}
+
+
+	/*
+	 * Follows a path of nested atoms, returning the body of the last one
+	 */
+	private static long[] findPath(FileChannel channel, long[] parent, String... path) throws IOException {
+
+		long[] atom = parent;
+
+		for (String type : path) {
+			atom = findAtom(channel, atom[0], atom[1], type);
+
+			if (atom == null)
+				return null;
+
+			if (type.equals("meta"))
+				atom = skipMetaHeader(channel, atom);
+		}
+		return atom;
+	}
+
+
+	/*
+	 * Finds a child atom between two offsets, returning the start and end of
+	 * its body or null if there is none
+	 */
+	private static long[] findAtom(FileChannel channel, long start, long end, String type) throws IOException {
+
+		long position = start;
+
+		while (position + ATOM_HEADER_SIZE <= end) {
+
+			ByteBuffer header = readAt(channel, position, 16);
+
+			if (header.remaining() < ATOM_HEADER_SIZE)
+				return null;
+
+			long size = header.getInt(0) & 0xFFFFFFFFL;
+			int headerSize = ATOM_HEADER_SIZE;
+
+			if (size == 1 && header.remaining() >= 16) {
+				size = header.getLong(8);
+				headerSize = 16;
+			} else if (size == 0) {
+				size = end - position;
+			}
+
+			if (size < headerSize)
+				return null;
+
+			String atomType = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+
+			if (atomType.equals(type))
+				return new long[] { position + headerSize, Math.min(position + size, end) };
+
+			position += size;
+		}
+		return null;
+	}
+
+
+	/*
+	 * The meta atom is a full atom with four bytes of version and flags before
+	 * its children, except in some QuickTime files
+	 */
+	private static long[] skipMetaHeader(FileChannel channel, long[] meta) throws IOException {
+
+		ByteBuffer start = readAt(channel, meta[0], 8);
+
+		if (start.remaining() == 8 && new String(start.array(), 4, 4, StandardCharsets.ISO_8859_1).equals("hdlr"))
+			return meta;
+
+		return new long[] { meta[0] + 4, meta[1] };
+	}
+
+
+	/*
+	 * Reads the duration in seconds from the body of an mvhd atom
+	 */
+	private static double readDuration(ByteBuffer mvhd) {
+
+		if (mvhd.remaining() < 20)
+			return 0;
+
+		long timescale;
+		long duration;
+
+		if (mvhd.get(0) == 1 && mvhd.remaining() >= 32) {
+			timescale = mvhd.getInt(20) & 0xFFFFFFFFL;
+			duration = mvhd.getLong(24);
+		} else {
+			timescale = mvhd.getInt(12) & 0xFFFFFFFFL;
+			duration = mvhd.getInt(16) & 0xFFFFFFFFL;
+		}
+		return timescale > 0 ? (double) duration / timescale : 0;
+	}
+
+
+	/*
+	 * Reads the wanted items of an ilst atom, and notes where the image of the
+	 * first cover starts without reading it
+	 */
+	private static void readItems(FileChannel channel, long[] ilst, Tags tags) throws IOException {
+
+		long position = ilst[0];
+
+		while (position + ATOM_HEADER_SIZE <= ilst[1]) {
+
+			ByteBuffer header = readAt(channel, position, ATOM_HEADER_SIZE);
+
+			if (header.remaining() < ATOM_HEADER_SIZE)
+				return;
+
+			long size = header.getInt(0) & 0xFFFFFFFFL;
+
+			if (size < ATOM_HEADER_SIZE)
+				return;
+
+			String type = new String(header.array(), 4, 4, StandardCharsets.ISO_8859_1);
+
+			if (type.equals(COVER) && tags.artLength == 0) {
+				long[] data = findAtom(channel, position + ATOM_HEADER_SIZE, position + size, "data");
+
+				if (data != null && data[1] - data[0] > 8 && data[1] - data[0] - 8 <= Integer.MAX_VALUE) {
+					tags.artOffset = data[0] + 8;
+					tags.artLength = (int) (data[1] - data[0] - 8);
+				}
+
+			} else if (isWanted(type) && size <= MAX_ITEM_SIZE) {
+				long[] data = findAtom(channel, position + ATOM_HEADER_SIZE, position + size, "data");
+
+				// the data atom starts with four bytes of type and four of locale
+				if (data != null && data[1] - data[0] > 8)
+					readItem(type, readAt(channel, data[0] + 8, (int) (data[1] - data[0] - 8)), tags);
+			}
+			position += size;
+		}
+	}
+
+
+	private static void readItem(String type, ByteBuffer value, Tags tags) {
+
+		if (type.equals(TRACK)) {
+			if (value.remaining() >= 4)
+				tags.trackNumber = value.getShort(2) & 0xFFFF;
+			return;
+		}
+
+		String text = new String(value.array(), 0, value.remaining(), StandardCharsets.UTF_8).trim();
+
+		if (text.isEmpty())
+			return;
+
+		if (type.equals(TITLE))
+			tags.title = text;
+		else if (type.equals(ARTIST))
+			tags.artist = text;
+		else if (type.equals(ALBUM_ARTIST) && tags.artist == null)
+			tags.artist = text;
+		else if (type.equals(ALBUM))
+			tags.album = text;
+	}
+
+
+	private static boolean isWanted(String type) {
+		return type.equals(TITLE) || type.equals(ARTIST) || type.equals(ALBUM_ARTIST) || type.equals(ALBUM)
+				|| type.equals(TRACK);
+	}
+
+
+	private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+		return ID3TagReader.readAt(channel, position, length);
+	}
+
+
+	/*
+	 * The fields found so far
+	 */
+	private static class Tags {
+
+
+		private String title;
+		private String artist;
+		private String album;
+		private int trackNumber;
+		private double duration;
+		private long artOffset;
+		private int artLength;
+	}
+
+}
@@ -0,0 +1,54 @@
+package application.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * TagReaderUtils. Small helpers shared by the readers of the different tag
+ * and container formats.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+final class TagReaderUtils {
+
+
+	private TagReaderUtils() {
+	}
+
+
+	/**
+	 * Checks whether the bytes at an offset of a buffer spell out an ASCII
+	 * identifier such as a chunk or frame id.
+	 *
+	 * @param buffer The buffer to check
+	 * @param offset The offset of the first byte to compare
+	 * @param id The identifier
+	 * @return True if every byte matches
+	 */
+	static boolean matches(ByteBuffer buffer, int offset, String id) {
+
+		for (int i = 0; i < id.length(); i++) {
+			if (buffer.get(offset + i) != id.charAt(i))
+				return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Parses the number at the start of a value such as "3/12".
+	 *
+	 * @param text The tag value
+	 * @return The leading number, 0 if the value does not start with a digit
+	 */
+	static long leadingNumber(String text) {
+
+		long number = 0;
+
+		for (int i = 0; i < text.length() && Character.isDigit(text.charAt(i)); i++)
+			number = number * 10 + (text.charAt(i) - '0');
+
+		return number;
+	}
+
+}
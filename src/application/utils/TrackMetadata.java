@@ -0,0 +1,138 @@
+package application.utils;
+
+import application.logic.MusicPlayer;
+
+/**
+ * TrackMetadata. The tags and audio properties of a single track, read from
+ * the file in one pass.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class TrackMetadata {
+
+
+	private final String title;
+	private final String artist;
+	private final String album;
+	private final int trackNumber;
+	private final double duration;
+	private final int bitrate;
+	private final long artOffset;
+	private final int artLength;
+
+
+	/**
+	 * Constructor.
+	 *
+	 * @param title The track title, may be null
+	 * @param artist The track artist, may be null
+	 * @param album The album the track belongs to, may be null
+	 * @param trackNumber The number of the track on its album, 0 if unknown
+	 * @param duration The duration of the track in seconds, 0 if unknown
+	 * @param bitrate The bitrate of the audio in kbps, 0 if unknown
+	 */
+	public TrackMetadata(String title, String artist, String album, int trackNumber, double duration,
+			int bitrate) {
+		this(title, artist, album, trackNumber, duration, bitrate, 0, 0);
+	}
+
+
+	/**
+	 * Constructor for a track whose embedded cover art was located while its
+	 * tags were read.
+	 *
+	 * @param title The track title, may be null
+	 * @param artist The track artist, may be null
+	 * @param album The album the track belongs to, may be null
+	 * @param trackNumber The number of the track on its album, 0 if unknown
+	 * @param duration The duration of the track in seconds, 0 if unknown
+	 * @param bitrate The bitrate of the audio in kbps, 0 if unknown
+	 * @param artOffset The offset of the encoded cover image in the file
+	 * @param artLength The length of the encoded cover image, 0 if the track
+	 *        has none, or -1 if it has one that cannot be read in place
+	 */
+	public TrackMetadata(String title, String artist, String album, int trackNumber, double duration,
+			int bitrate, long artOffset, int artLength) {
+		this.title = title;
+		this.artist = artist;
+		this.album = album;
+		this.trackNumber = trackNumber;
+		this.duration = duration;
+		this.bitrate = bitrate;
+		this.artOffset = artOffset;
+		this.artLength = artLength;
+	}
+
+
+	public String getTitle() {
+		return title;
+	}
+
+
+	public String getArtist() {
+		return artist;
+	}
+
+
+	public String getAlbum() {
+		return album;
+	}
+
+
+	public int getTrackNumber() {
+		return trackNumber;
+	}
+
+
+	/**
+	 * Returns the duration of the track.
+	 *
+	 * @return The duration in seconds
+	 */
+	public double getDuration() {
+		return duration;
+	}
+
+
+	/**
+	 * Returns the bitrate of the track's audio.
+	 *
+	 * @return The bitrate in kbps
+	 */
+	public int getBitrate() {
+		return bitrate;
+	}
+
+
+	/**
+	 * Returns where the encoded cover image starts in the file.
+	 *
+	 * @return The offset of the image, only meaningful when it has a length
+	 */
+	public long getArtOffset() {
+		return artOffset;
+	}
+
+
+	/**
+	 * Returns the length of the encoded cover image found in the file.
+	 *
+	 * @return The length of the image, 0 if the track has no cover art, or -1
+	 *         if it has art that can only be read by parsing the tags again
+	 */
+	public int getArtLength() {
+		return artLength;
+	}
+
+
+	/**
+	 * Returns the formatted duration of the track (mm:ss)
+	 *
+	 * @return The formatted duration as a string
+	 */
+	public String getFormattedDuration() {
+		return MusicPlayer.getFormattedTime(duration);
+	}
+
+}
@@ -0,0 +1,170 @@
+package application.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * WavTagReader. Reads the tags and duration of a WAV file by walking its RIFF
+ * chunk headers. Tags come from the LIST/INFO chunk and from an embedded ID3
+ * chunk, the sample data is skipped.
+ *
+ * @author agent
+ * @version Oct 18, 2026
+ */
+public class WavTagReader {
+
+
+	private static final int CHUNK_HEADER_SIZE = 8;
+
+	/*
+	 * INFO values larger than this are ignored
+	 */
+	private static final int MAX_INFO_SIZE = 64 * 1024;
+
+
+	/**
+	 * Reads the tags and duration of a WAV file.
+	 *
+	 * @param file The WAV file
+	 * @return The metadata of the track
+	 * @throws IOException If the file could not be read
+	 */
+	public static TrackMetadata read(File file) throws IOException {
+
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+
+			ByteBuffer header = readAt(channel, 0, 12);
+
+			if (header.remaining() < 12 || !TagReaderUtils.matches(header, 0, "RIFF") || !TagReaderUtils.matches(header, 8, "WAVE"))
+				return new TrackMetadata(null, null, null, 0, 0, 0);
+
+			String title = null;
+			String artist = null;
+			String album = null;
+			int trackNumber = 0;
+			long byteRate = 0;
+			long dataSize = 0;
+			ID3TagReader.Tag id3 = null;
+
+			long position = 12;
+			long end = Math.min(channel.size(), 8 + (header.getInt(4) & 0xFFFFFFFFL));
+
+			while (position + CHUNK_HEADER_SIZE <= end) {
+
+				ByteBuffer chunk = readAt(channel, position, CHUNK_HEADER_SIZE);
+
+				if (chunk.remaining() < CHUNK_HEADER_SIZE)
+					break;
+
+				long size = chunk.getInt(4) & 0xFFFFFFFFL;
+				long body = position + CHUNK_HEADER_SIZE;
+
+				if (TagReaderUtils.matches(chunk, 0, "fmt ")) {
+					ByteBuffer format = readAt(channel, body, 16);
+
+					if (format.remaining() >= 12)
+						byteRate = format.getInt(8) & 0xFFFFFFFFL;
+
+				} else if (TagReaderUtils.matches(chunk, 0, "data")) {
+					dataSize = Math.min(size, channel.size() - body);
+
+				} else if (TagReaderUtils.matches(chunk, 0, "id3 ") || TagReaderUtils.matches(chunk, 0, "ID3 ")) {
+					id3 = ID3TagReader.read(channel, body);
+
+				} else if (TagReaderUtils.matches(chunk, 0, "LIST") && size <= MAX_INFO_SIZE) {
+					ByteBuffer list = readAt(channel, body, (int) size);
+
+					if (list.remaining() >= 4 && TagReaderUtils.matches(list, 0, "INFO")) {
+						String[] info = readInfo(list);
+						title = info[0];
+						artist = info[1];
+						album = info[2];
+						trackNumber = info[3] == null ? 0 : (int) TagReaderUtils.leadingNumber(info[3]);
+					}
+				}
+
+				// chunks are padded to an even length
+				position = body + size + (size & 1);
+			}
+
+			if (id3 != null) {
+				title = title != null ? title : id3.getTitle();
+				artist = artist != null ? artist : id3.getArtist();
+				album = album != null ? album : id3.getAlbum();
+				trackNumber = trackNumber != 0 ? trackNumber : id3.getTrackNumber();
+			}
+
+			double duration = byteRate > 0 ? (double) dataSize / byteRate : 0;
+			int bitrate = (int) (byteRate * 8 / 1000);
+
+			return new TrackMetadata(title, artist, album, trackNumber, duration, bitrate);
+		}
+	}
+
+
+	/*
+	 * Reads the title, artist, album and track number sub-chunks of a
+	 * LIST/INFO chunk body
+	 */
+	private static String[] readInfo(ByteBuffer list) {
+
+		String[] info = new String[4];
+		int position = 4;
+
+		while (position + CHUNK_HEADER_SIZE <= list.limit()) {
+
+			int size = list.getInt(position + 4);
+			int body = position + CHUNK_HEADER_SIZE;
+
+			if (size < 0 || body + size > list.limit())
+				break;
+
+			int field = -1;
+
+			if (TagReaderUtils.matches(list, position, "INAM"))
+				field = 0;
+			else if (TagReaderUtils.matches(list, position, "IART"))
+				field = 1;
+			else if (TagReaderUtils.matches(list, position, "IPRD"))
+				field = 2;
+			else if (TagReaderUtils.matches(list, position, "ITRK") || TagReaderUtils.matches(list, position, "IPRT"))
+				field = 3;
+
+			if (field >= 0)
+				info[field] = decode(list, body, size);
+
+			position = body + size + (size & 1);
+		}
+		return info;
+	}
+
+
+	/*
+	 * Decodes a null terminated string, returning null when it is blank
+	 */
+	private static String decode(ByteBuffer buffer, int offset, int length) {
+
+		int end = offset;
+
+		while (end < offset + length && buffer.get(end) != 0)
+			end++;
+
+		String text = new String(buffer.array(), buffer.arrayOffset() + offset, end - offset, StandardCharsets.UTF_8)
+				.trim();
+		return text.isEmpty() ? null : text;
+	}
+
+
+	/*
+	 * RIFF sizes are little endian
+	 */
+	private static ByteBuffer readAt(FileChannel channel, long position, int length) throws IOException {
+		return ID3TagReader.readAt(channel, position, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+}